@@ -0,0 +1,200 @@
+package org.salesForceTesting.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Select;
+import org.salesForceTesting.driver.DriverPool;
+import org.salesForceTesting.driver.PooledSession;
+import org.salesForceTesting.pages.ContactFormPage;
+import org.salesForceTesting.server.LocalContactServer;
+
+import java.util.concurrent.TimeUnit;
+
+/* Benchmarks for the ContactFormPage methods the tests spend their time in, run against the local copy
+ * of the contact page (LocalContactServer, no added latency) so the numbers only move when our code does.
+ * The browser is started once per trial in @Setup, pages are loaded or reset in @Setup(Level.Invocation),
+ * so launch and page load times are not in the measurements (except for navigateToContactPage itself).
+ *
+ * Run with: mvn -Pbenchmarks verify   (results in target/jmh-results.json)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactFormPageBenchmark {
+
+    // one browser per benchmark thread, taken from the same pool the tests use
+    @State(Scope.Thread)
+    public static class Browser {
+        PooledSession session;
+        WebDriver driver;
+        ContactFormPage page;
+
+        @Setup(Level.Trial)
+        public void startBrowser() {
+            System.setProperty("contact.page.url", "local");
+            System.setProperty("wait.log", "false");
+            session = DriverPool.getInstance().lease();
+            driver = session.getDriver();
+            page = new ContactFormPage(driver);
+            page.navigateToContactPage();
+        }
+
+        @TearDown(Level.Trial)
+        public void stopBrowser() {
+            DriverPool.getInstance().release(session, false);
+            DriverPool.getInstance().shutdown();
+            LocalContactServer.stopShared();
+        }
+    }
+
+    // an empty form before every call, for the benchmarks that fill in or submit
+    @State(Scope.Thread)
+    public static class EmptyForm {
+        @Setup(Level.Invocation)
+        public void reset(Browser browser) {
+            browser.page.resetForm();
+        }
+    }
+
+    // a submitted empty form, so every field has its error message showing
+    @State(Scope.Thread)
+    public static class SubmittedForm {
+        @Setup(Level.Iteration)
+        public void submitEmpty(Browser browser) {
+            browser.page.resetForm();
+            browser.page.submitForm();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TextField {
+        @Param({"firstName", "lastName", "jobTitle", "email", "company", "phone"})
+        public String field;
+    }
+
+    @State(Scope.Thread)
+    public static class Dropdown {
+        @Param({"employees", "productInterest", "country"})
+        public String dropdown;
+    }
+
+    // the state dropdown only exists once a country with states is picked, that happens before the call
+    @State(Scope.Thread)
+    public static class StateShowing {
+        @Setup(Level.Invocation)
+        public void pickCountry(Browser browser) {
+            browser.page.resetForm();
+            new Select(browser.driver.findElement(By.name("CompanyCountry"))).selectByVisibleText("United States");
+            browser.page.isStateFieldVisible();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ErrorField {
+        @Param({"firstName", "lastName", "jobTitle", "email", "company", "employees", "phone", "productInterest", "country", "state"})
+        public String field;
+    }
+
+    // the page has no getter for the state error message
+    @State(Scope.Thread)
+    public static class MessageField {
+        @Param({"firstName", "lastName", "jobTitle", "email", "company", "employees", "phone", "productInterest", "country"})
+        public String field;
+    }
+
+    @Benchmark
+    public void navigateToContactPage(Browser browser) {
+        browser.page.navigateToContactPage();
+    }
+
+    @Benchmark
+    public void fillOutForm(Browser browser, EmptyForm form) {
+        browser.page.fillOutForm("Jack", "Ellis", "jackellis@libertyit.com", "Liberty IT", "9503854243",
+                "Software Engineer", "21 - 200 employees", "Integration Software", "United States", "Alabama");
+    }
+
+    @Benchmark
+    public void setTextField(Browser browser, EmptyForm form, TextField text) {
+        ContactFormPage page = browser.page;
+        switch (text.field) {
+            case "firstName" -> page.setFirstName("Jack");
+            case "lastName" -> page.setLastName("Ellis");
+            case "jobTitle" -> page.setJobTitle("Software Engineer");
+            case "email" -> page.setEmail("jackellis@libertyit.com");
+            case "company" -> page.setCompany("Liberty IT");
+            case "phone" -> page.setPhone("9503854243");
+            default -> throw new IllegalArgumentException(text.field);
+        }
+    }
+
+    @Benchmark
+    public void selectDropdown(Browser browser, EmptyForm form, Dropdown select) {
+        ContactFormPage page = browser.page;
+        switch (select.dropdown) {
+            case "employees" -> page.setEmployees("21 - 200 employees");
+            case "productInterest" -> page.setProductInterest("Integration Software");
+            case "country" -> page.setCountry("United Kingdom");
+            default -> throw new IllegalArgumentException(select.dropdown);
+        }
+    }
+
+    @Benchmark
+    public void selectState(Browser browser, StateShowing form) {
+        browser.page.selectState("Alabama");
+    }
+
+    @Benchmark
+    public boolean isErrorDisplayed(Browser browser, SubmittedForm form, ErrorField error) {
+        ContactFormPage page = browser.page;
+        return switch (error.field) {
+            case "firstName" -> page.isFirstNameErrorDisplayed();
+            case "lastName" -> page.isLastNameErrorDisplayed();
+            case "jobTitle" -> page.isJobTitleErrorDisplayed();
+            case "email" -> page.isEmailErrorDisplayed();
+            case "company" -> page.isCompanyErrorDisplayed();
+            case "employees" -> page.isEmployeesErrorDisplayed();
+            case "phone" -> page.isPhoneErrorDisplayed();
+            case "productInterest" -> page.isProductInterestErrorDisplayed();
+            case "country" -> page.isCountryErrorDisplayed();
+            case "state" -> page.isStateErrorDisplayed();
+            default -> throw new IllegalArgumentException(error.field);
+        };
+    }
+
+    @Benchmark
+    public String getErrorMessage(Browser browser, SubmittedForm form, MessageField error) {
+        ContactFormPage page = browser.page;
+        return switch (error.field) {
+            case "firstName" -> page.getFirstNameErrorMessage();
+            case "lastName" -> page.getLastNameErrorMessage();
+            case "jobTitle" -> page.getJobTitleErrorMessage();
+            case "email" -> page.getEmailErrorMessage();
+            case "company" -> page.getCompanyErrorMessage();
+            case "employees" -> page.getEmployeesErrorMessage();
+            case "phone" -> page.getPhoneErrorMessage();
+            case "productInterest" -> page.getProductInterestErrorMessage();
+            case "country" -> page.getCountryErrorMessage();
+            default -> throw new IllegalArgumentException(error.field);
+        };
+    }
+
+    @Benchmark
+    public void submitForm(Browser browser, EmptyForm form) {
+        browser.page.submitForm();
+    }
+}
@@ -0,0 +1,102 @@
+package org.salesForceTesting.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.Select;
+import org.salesForceTesting.driver.DriverPool;
+import org.salesForceTesting.driver.PooledSession;
+import org.salesForceTesting.pages.ContactFormPage;
+import org.salesForceTesting.pages.DropdownSelector;
+import org.salesForceTesting.server.LocalContactServer;
+import org.salesForceTesting.testUtils.WaitPolicy;
+
+import java.util.concurrent.TimeUnit;
+
+/* Selenium's Select against DropdownSelector on the two long lists of the form:
+ * the country dropdown (about 200 options) and the state dropdown of the United States.
+ * The options picked are near the end of their list, the worst case for Select's lookup.
+ * The DropdownSelector lives as long as the page, so like in the tests its index is read once
+ * and every measured pick is a single script.
+ *
+ * Run with: mvn -Pbenchmarks verify -Djmh.include=DropdownSelectionBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DropdownSelectionBenchmark {
+
+    private static final By COUNTRY = By.name("CompanyCountry");
+    private static final By STATE = By.name("CompanyState");
+
+    @State(Scope.Thread)
+    public static class Browser {
+        @Param({"select", "indexed"})
+        public String engine;
+
+        @Param({"country", "state"})
+        public String dropdown;
+
+        PooledSession session;
+        WebDriver driver;
+        ContactFormPage page;
+        DropdownSelector selector;
+        WebElement element;
+
+        @Setup(Level.Trial)
+        public void startBrowser() {
+            System.setProperty("contact.page.url", "local");
+            System.setProperty("wait.log", "false");
+            session = DriverPool.getInstance().lease();
+            driver = session.getDriver();
+            page = new ContactFormPage(driver);
+            page.navigateToContactPage();
+            selector = new DropdownSelector(driver);
+        }
+
+        // an untouched dropdown before every pick, for the state list the United States is picked first
+        @Setup(Level.Invocation)
+        public void resetDropdown() {
+            page.resetForm();
+            if (dropdown.equals("country")) {
+                element = driver.findElement(COUNTRY);
+            } else {
+                new Select(driver.findElement(COUNTRY)).selectByVisibleText("United States");
+                element = WaitPolicy.defaults().clickable(driver, STATE);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stopBrowser() {
+            DriverPool.getInstance().release(session, false);
+            DriverPool.getInstance().shutdown();
+            LocalContactServer.stopShared();
+        }
+    }
+
+    @Benchmark
+    public void selectByVisibleText(Browser browser) {
+        String text = browser.dropdown.equals("country") ? "Zimbabwe" : "Wyoming";
+        By locator = browser.dropdown.equals("country") ? COUNTRY : STATE;
+        if (browser.engine.equals("select")) {
+            new Select(browser.element).selectByVisibleText(text);
+        } else {
+            browser.selector.select(browser.element, locator, text);
+        }
+    }
+}
@@ -1,65 +1,163 @@
 package org.salesForceTesting.data;
 
 import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.testng.annotations.DataProvider;
 
-import java.io.FileReader;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
+/* Reads the test data for the contact form one row at a time.
+ * The rows are parsed when TestNG asks for them, so a big data file doesn't have to fit in memory
+ * and the first test starts straight away. The file is closed once the last row has been read.
+ * Small files are read through a buffered reader, files over csv.mmap.threshold bytes (default 64 MB)
+ * through memory mapped windows.
+ *
+ * The file defaults to src/test/resources/ContactFormData.csv and can be changed with -Dcontact.form.data=<path>
+ * With -Dshard.count / -Dshard.index only this JVM's share of the rows is handed out (see ShardPlanner).
+ */
 public class ContactFormDataProvider {
     private final static char DELIMITER = ',';
+    private static final String DEFAULT_CSV_FILE_PATH = "src/test/resources/ContactFormData.csv";
+    private static final long MAPPED_READ_THRESHOLD = Long.getLong("csv.mmap.threshold", 64L * 1024 * 1024);
 
-    @DataProvider(name = "ContactFormData")
-    public static Object[][] getSfContactFormData() {
+    // rows run in parallel, the number of worker threads is set with -Dtest.workers (see pom.xml)
+    @DataProvider(name = "ContactFormData", parallel = true)
+    public static Iterator<Object[]> getSfContactFormData() {
+        return project(ShardPlanner.filter(readRows()), ContactFormRow::toParameters);
+    }
+
+    public static Path getCsvFilePath() {
+        return Paths.get(System.getProperty("contact.form.data", DEFAULT_CSV_FILE_PATH));
+    }
+
+    public static Iterator<ContactFormRow> readRows() {
+        return readRows(getCsvFilePath());
+    }
+
+    public static Iterator<ContactFormRow> readRows(Path csvFilePath) {
         try {
             System.out.println("Starting to read CSV data...");
+            Reader in = openReader(csvFilePath);
+            System.out.println("Successfully opened CSV file");
 
-            // path to the csv file
-            String csvFilePath = "src/test/resources/ContactFormData.csv";
+            CSVParser parser = CSVFormat.DEFAULT.builder().setDelimiter(DELIMITER).setHeader().setSkipHeaderRecord(true)
+                    .setIgnoreHeaderCase(true).setTrim(true).build().parse(in);
+            return new RowIterator(parser);
 
-            // read the csv file
-            Reader in = new FileReader(csvFilePath);
-            System.out.println("Successfully opened CSV file");
+        } catch (IOException e) {
+            System.err.println("Error reading CSV file: " + e.getMessage());
+            // just return a empty iterator if there is an error
+            return Collections.emptyIterator();
+        }
+    }
+
+    private static Reader openReader(Path csvFilePath) throws IOException {
+        if (Files.size(csvFilePath) > MAPPED_READ_THRESHOLD) {
+            return new BufferedReader(new InputStreamReader(new MappedFileInputStream(csvFilePath), StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(csvFilePath, StandardCharsets.UTF_8);
+    }
 
-            // parse the csv file using an iterator (most stable way I could get it to work)
-            Iterable<CSVRecord> fields = CSVFormat.DEFAULT.withDelimiter(DELIMITER).withFirstRecordAsHeader()
-                    .withIgnoreHeaderCase().withTrim().parse(in);
+    // turns every row into what the data provider hands to the test method, still one row at a time
+    private static Iterator<Object[]> project(Iterator<ContactFormRow> rows, Function<ContactFormRow, Object[]> projection) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
 
-            List<Object[]> testData = new ArrayList<>();
-            // Go through each row in the csv file and add it to the test data array list
-            for (CSVRecord field : fields) {
-                try {
-                    String testCaseId = field.get("testCaseId");
-                    String firstName = field.get("firstName").isEmpty() ? null : field.get("firstName");
-                    String lastName = field.get("lastName").isEmpty() ? null : field.get("lastName");
-                    String jobTitle = field.get("jobTitle").isEmpty() ? null : field.get("jobTitle");
-                    String email = field.get("email").isEmpty() ? null : field.get("email");
-                    String company = field.get("company").isEmpty() ? null : field.get("company");
-                    String employeesNumber = field.get("employeesNumber").isEmpty() ? null : field.get("employeesNumber");
-                    String phone = field.get("phone").isEmpty() ? null : field.get("phone");
-                    String productInterest = field.get("productInterest").isEmpty() ? null : field.get("productInterest");
-                    String country = field.get("country").isEmpty() ? null : field.get("country");
-                    String state = field.get("state").isEmpty() ? null : field.get("state");
-                    String expectedResult = field.get("expectedResult");
-
-                    Object[] collectedData = {testCaseId, firstName, lastName, jobTitle, email, company, employeesNumber, phone, productInterest, country, state, expectedResult};
-                    testData.add(collectedData);
-
-                } catch (Exception e) {
-                    System.out.println("error reading row from the csv file: " + e.getMessage());
+            @Override
+            public Object[] next() {
+                return projection.apply(rows.next());
+            }
+        };
+    }
+
+    /* Parses the next row only when it's asked for.
+     * Rows that can't be read are logged and skipped like before, the parser is closed at the end of the file.
+     */
+    private static class RowIterator implements Iterator<ContactFormRow>, Closeable {
+        private final CSVParser parser;
+        private final Iterator<CSVRecord> records;
+        private final ReentrantLock lock = new ReentrantLock();
+        private ContactFormRow nextRow;
+        private boolean closed;
+
+        RowIterator(CSVParser parser) {
+            this.parser = parser;
+            this.records = parser.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            lock.lock();
+            try {
+                while (nextRow == null && !closed) {
+                    try {
+                        if (!records.hasNext()) {
+                            close();
+                            break;
+                        }
+                        nextRow = ContactFormRow.fromRecord(records.next());
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        System.out.println("error reading row from the csv file: " + e.getMessage());
+                    } catch (RuntimeException e) {
+                        // the file itself couldn't be read any further
+                        System.err.println("Error reading CSV file: " + e.getMessage());
+                        close();
+                    }
                 }
+                return nextRow != null;
+            } finally {
+                lock.unlock();
             }
+        }
 
-            return testData.toArray(new Object[0][]);
+        @Override
+        public ContactFormRow next() {
+            lock.lock();
+            try {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ContactFormRow row = nextRow;
+                nextRow = null;
+                return row;
+            } finally {
+                lock.unlock();
+            }
+        }
 
-        } catch (Exception e) {
-            System.err.println("Error reading CSV file: " + e.getMessage());
-            // just return a empty array if there is an error
-            return new Object[0][0];
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing CSV file: " + e.getMessage());
+                }
+            } finally {
+                lock.unlock();
+            }
         }
     }
 }
-
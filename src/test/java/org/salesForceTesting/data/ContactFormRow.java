@@ -0,0 +1,37 @@
+package org.salesForceTesting.data;
+
+import org.apache.commons.csv.CSVRecord;
+
+/* One row of ContactFormData.csv.
+ * Empty cells become null, the same as the page object setters expect (a null value means "leave the field alone").
+ */
+public record ContactFormRow(String testCaseId, String firstName, String lastName, String jobTitle, String email,
+                             String company, String employeesNumber, String phone, String productInterest,
+                             String country, String state, String expectedResult) {
+
+    public static ContactFormRow fromRecord(CSVRecord field) {
+        return new ContactFormRow(
+                field.get("testCaseId"),
+                emptyToNull(field.get("firstName")),
+                emptyToNull(field.get("lastName")),
+                emptyToNull(field.get("jobTitle")),
+                emptyToNull(field.get("email")),
+                emptyToNull(field.get("company")),
+                emptyToNull(field.get("employeesNumber")),
+                emptyToNull(field.get("phone")),
+                emptyToNull(field.get("productInterest")),
+                emptyToNull(field.get("country")),
+                emptyToNull(field.get("state")),
+                field.get("expectedResult"));
+    }
+
+    // the parameters in the order testContactFormValidation takes them
+    public Object[] toParameters() {
+        return new Object[]{testCaseId, firstName, lastName, jobTitle, email, company, employeesNumber, phone,
+                productInterest, country, state, expectedResult};
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
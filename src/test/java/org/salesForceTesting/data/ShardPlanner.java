@@ -0,0 +1,268 @@
+package org.salesForceTesting.data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* Splits the data provider rows over several JVMs (CI machines) so they all finish at about the same time.
+ * How long every testCaseId took is saved at the end of each run (all test methods of the row added up).
+ * The next sharded run reads those durations and packs the rows into shard.count shards:
+ * longest row first, always onto the shard with the least work so far (longest processing time first).
+ * Rows without a recorded duration count as the median of the known ones.
+ * Every JVM makes the same plan from the same file and only runs the rows of its own shard.
+ * The tests without a data provider only run in shard 0 (ShardMethodInterceptor), their durations are kept
+ * in the same file under method:<name> and shard 0 starts the packing with their total.
+ *
+ * Settings (system properties):
+ *  shard.count           - number of shards (default 1, no sharding)
+ *  shard.index           - the shard this JVM runs, 0 to shard.count - 1
+ *  shard.durations.file  - where the durations are kept (default test-output/row-durations.properties)
+ *  shard.default.ms      - duration of a row when nothing has been recorded at all (default 10000)
+ */
+public final class ShardPlanner {
+
+    private static final int SHARD_COUNT = Integer.getInteger("shard.count", 1);
+    private static final int SHARD_INDEX = Integer.getInteger("shard.index", 0);
+    private static final long DEFAULT_MILLIS = Long.getLong("shard.default.ms", 10_000);
+    private static final String METHOD_PREFIX = "method:";
+
+    // durations measured in this run, testCaseId (or method:<name>) -> milliseconds over all its test methods
+    private static final Map<String, AtomicLong> MEASURED = new ConcurrentHashMap<>();
+    private static final long RUN_START = System.currentTimeMillis();
+
+    private static final ReentrantLock PLAN_LOCK = new ReentrantLock();
+    private static volatile Plan plan;
+
+    private ShardPlanner() {
+    }
+
+    public static boolean isSharded() {
+        return SHARD_COUNT > 1;
+    }
+
+    public static int getShardIndex() {
+        return SHARD_INDEX;
+    }
+
+    // the tests without a data provider run in shard 0 only
+    public static boolean runsUnshardedTests() {
+        return !isSharded() || SHARD_INDEX == 0;
+    }
+
+    public static Path getDurationsFile() {
+        return Paths.get(System.getProperty("shard.durations.file", "test-output/row-durations.properties"));
+    }
+
+    // only the rows of this JVM's shard, everything when sharding is off
+    public static Iterator<ContactFormRow> filter(Iterator<ContactFormRow> rows) {
+        if (!isSharded()) {
+            return rows;
+        }
+        Set<String> mine = getPlan().shardRows.get(SHARD_INDEX);
+        return new Iterator<>() {
+            private final ReentrantLock lock = new ReentrantLock();
+            private ContactFormRow next;
+
+            @Override
+            public boolean hasNext() {
+                lock.lock();
+                try {
+                    while (next == null && rows.hasNext()) {
+                        ContactFormRow row = rows.next();
+                        if (mine.contains(row.testCaseId())) {
+                            next = row;
+                        }
+                    }
+                    return next != null;
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public ContactFormRow next() {
+                lock.lock();
+                try {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    ContactFormRow row = next;
+                    next = null;
+                    return row;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    // BaseTestCore reports every data provider test when it finishes
+    public static void recordDuration(String testCaseId, long millis) {
+        MEASURED.computeIfAbsent(testCaseId, id -> new AtomicLong()).addAndGet(millis);
+    }
+
+    // and every test without a data provider, by its method name
+    public static void recordMethodDuration(String methodName, long millis) {
+        recordDuration(METHOD_PREFIX + methodName, millis);
+    }
+
+    /* Saves this run's durations (rows that didn't run here keep their old value)
+     * and prints the predicted and actual time of this shard.
+     */
+    public static void finish() {
+        if (MEASURED.isEmpty()) {
+            return;
+        }
+        long actual = MEASURED.values().stream().mapToLong(AtomicLong::get).sum();
+        if (isSharded()) {
+            Plan current = getPlan();
+            System.out.println(String.format("Shard %d/%d: predicted %d ms, actual %d ms of test time (%d ms wall clock)",
+                    SHARD_INDEX, SHARD_COUNT, current.predictedMillis[SHARD_INDEX], actual, System.currentTimeMillis() - RUN_START));
+        }
+
+        Path file = getDurationsFile();
+        Map<String, Long> durations = loadDurations(file);
+        MEASURED.forEach((id, millis) -> durations.put(id, millis.get()));
+        Properties properties = new Properties();
+        durations.forEach((id, millis) -> properties.setProperty(id, Long.toString(millis)));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(file)) {
+                properties.store(writer, "Duration in ms of every testCaseId, used to balance the shards");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not save the row durations: " + e.getMessage());
+        }
+    }
+
+    private static Plan getPlan() {
+        if (plan == null) {
+            PLAN_LOCK.lock();
+            try {
+                if (plan == null) {
+                    plan = makePlan();
+                }
+            } finally {
+                PLAN_LOCK.unlock();
+            }
+        }
+        return plan;
+    }
+
+    private static Plan makePlan() {
+        if (SHARD_INDEX < 0 || SHARD_INDEX >= SHARD_COUNT) {
+            throw new IllegalArgumentException("shard.index has to be between 0 and " + (SHARD_COUNT - 1) + " but was " + SHARD_INDEX);
+        }
+        Map<String, Long> recorded = loadDurations(getDurationsFile());
+        long shardZeroMethods = 0;
+        for (Iterator<Map.Entry<String, Long>> it = recorded.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getKey().startsWith(METHOD_PREFIX)) {
+                shardZeroMethods += entry.getValue();
+                it.remove();
+            }
+        }
+        long fallback = median(recorded.values());
+
+        // only the ids are kept, the rows themselves are read again by the data provider
+        Map<String, Long> rows = new LinkedHashMap<>();
+        for (Iterator<ContactFormRow> it = ContactFormDataProvider.readRows(); it.hasNext(); ) {
+            String id = it.next().testCaseId();
+            rows.put(id, recorded.getOrDefault(id, fallback));
+        }
+
+        List<Map.Entry<String, Long>> longestFirst = new ArrayList<>(rows.entrySet());
+        longestFirst.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        Plan plan = new Plan(SHARD_COUNT);
+        plan.predictedMillis[0] = shardZeroMethods;
+        // least loaded shard first, the lowest index on a tie so every JVM comes up with the same plan
+        PriorityQueue<Integer> shards = new PriorityQueue<>(
+                Comparator.<Integer>comparingLong(shard -> plan.predictedMillis[shard]).thenComparing(shard -> shard));
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            shards.add(shard);
+        }
+        for (Map.Entry<String, Long> row : longestFirst) {
+            int shard = shards.poll();
+            plan.shardRows.get(shard).add(row.getKey());
+            plan.predictedMillis[shard] += row.getValue();
+            shards.add(shard);
+        }
+
+        System.out.println("Shard plan for " + rows.size() + " rows (" + (rows.size() - countKnown(rows, recorded))
+                + " without a recorded duration, counted as " + fallback + " ms), shard 0 also runs "
+                + shardZeroMethods + " ms of tests without a data provider:");
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            System.out.println("  shard " + shard + ": " + plan.shardRows.get(shard).size() + " rows, predicted "
+                    + plan.predictedMillis[shard] + " ms" + (shard == SHARD_INDEX ? " <- this JVM" : ""));
+        }
+        return plan;
+    }
+
+    private static long countKnown(Map<String, Long> rows, Map<String, Long> recorded) {
+        return rows.keySet().stream().filter(recorded::containsKey).count();
+    }
+
+    private static long median(Collection<Long> values) {
+        if (values.isEmpty()) {
+            return DEFAULT_MILLIS;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static Map<String, Long> loadDurations(Path file) {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return durations;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            System.err.println("Could not read the row durations, every row counts the same: " + e.getMessage());
+            return durations;
+        }
+        for (String id : properties.stringPropertyNames()) {
+            try {
+                durations.put(id, Long.parseLong(properties.getProperty(id).trim()));
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring the duration of " + id + ": " + properties.getProperty(id));
+            }
+        }
+        return durations;
+    }
+
+    private static final class Plan {
+        private final List<Set<String>> shardRows = new ArrayList<>();
+        private final long[] predictedMillis;
+
+        Plan(int shards) {
+            predictedMillis = new long[shards];
+            for (int shard = 0; shard < shards; shard++) {
+                shardRows.add(new HashSet<>());
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.salesForceTesting.driver;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/* Times every call that goes through the decorated driver and the elements, windows, navigation etc. it hands out.
+ * Commands are named after the method, with the interface in front when it isn't the driver itself
+ * (findElement, WebElement.sendKeys, Navigation.to, ...). Calls that throw are recorded as "<command> (failed)".
+ * Elements remember the locator they were found with, so element commands are also kept per locator.
+ */
+class CommandTimingListener implements WebDriverListener {
+
+    // start times of the calls in progress on this thread
+    private final ThreadLocal<Deque<Long>> starts = ThreadLocal.withInitial(ArrayDeque::new);
+    private final Map<WebElement, String> elementLocators = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        starts.get().push(System.nanoTime());
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        Long start = starts.get().poll();
+        if (start == null) {
+            return;
+        }
+        String locator = locatorOf(target, method, args);
+        CommandTimings.record(commandName(target, method), locator, System.nanoTime() - start);
+
+        if (locator != null && result instanceof WebElement) {
+            elementLocators.put(unwrap((WebElement) result), locator);
+        } else if (locator != null && result instanceof List) {
+            for (Object element : (List<?>) result) {
+                if (element instanceof WebElement) {
+                    elementLocators.put(unwrap((WebElement) element), locator);
+                }
+            }
+        }
+    }
+
+    // the result we get is already decorated, later calls on it report the original element as the target
+    private static WebElement unwrap(WebElement element) {
+        return element instanceof WrapsElement ? ((WrapsElement) element).getWrappedElement() : element;
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        Long start = starts.get().poll();
+        if (start != null) {
+            CommandTimings.record(commandName(target, method) + " (failed)", locatorOf(target, method, args), System.nanoTime() - start);
+        }
+    }
+
+    private String locatorOf(Object target, Method method, Object[] args) {
+        if (args != null && args.length > 0 && args[0] instanceof By) {
+            return args[0].toString();
+        }
+        if (target instanceof WebElement) {
+            return elementLocators.get(target);
+        }
+        return null;
+    }
+
+    private static String commandName(Object target, Method method) {
+        if (target instanceof WebDriver) {
+            return method.getName();
+        }
+        if (target instanceof WebElement) {
+            return "WebElement." + method.getName();
+        }
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+}
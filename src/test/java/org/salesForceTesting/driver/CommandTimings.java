@@ -0,0 +1,145 @@
+package org.salesForceTesting.driver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Where the time of a test goes, per WebDriver command.
+ * Every driver the pool hands out is wrapped in an EventFiringDecorator with a CommandTimingListener, so every
+ * findElement, sendKeys, click, executeScript, ... is timed. On top of that the page times its Select calls and
+ * WaitPolicy reports its waits here, so a slow row can be split into commands, dropdowns and waiting.
+ *
+ * Kept per run:
+ *  - a latency histogram per command and per command + locator (p50/p90/p99/max)
+ *  - count and total time per command for every test, keyed by the testCaseId (the first data provider parameter)
+ *    and the test method
+ * The report is written as JSON to test-output/command-latency.json when the suite finishes.
+ *
+ * Settings (system properties):
+ *  command.timing         - false turns the decorator off (default true)
+ *  command.timing.report  - where the JSON report goes
+ */
+public final class CommandTimings {
+
+    private static final Map<String, LatencyHistogram> BY_COMMAND = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> BY_LOCATOR = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, TestTotals>> BY_TEST = new ConcurrentHashMap<>();
+
+    // the test running on this thread, set by BaseTestCore before every test
+    private static final ThreadLocal<String> CURRENT_TEST = new ThreadLocal<>();
+
+    private CommandTimings() {
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("command.timing", "true"));
+    }
+
+    // wraps the raw browser, the pool keeps the raw driver for DevTools and its own housekeeping
+    static WebDriver decorate(WebDriver driver) {
+        return new EventFiringDecorator<>(new CommandTimingListener()).decorate(driver);
+    }
+
+    public static void startTest(String test) {
+        CURRENT_TEST.set(test);
+    }
+
+    public static void endTest() {
+        CURRENT_TEST.remove();
+    }
+
+    // locator can be null for commands that aren't about a located element
+    public static void record(String command, String locator, long nanos) {
+        BY_COMMAND.computeIfAbsent(command, key -> new LatencyHistogram()).record(nanos);
+        if (locator != null) {
+            BY_LOCATOR.computeIfAbsent(command + " " + locator, key -> new LatencyHistogram()).record(nanos);
+        }
+        String test = CURRENT_TEST.get();
+        if (test != null) {
+            BY_TEST.computeIfAbsent(test, key -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(command, key -> new TestTotals()).add(nanos);
+        }
+    }
+
+    // times something that isn't a single WebDriver command, like a Select call that does several of them
+    public static void time(String command, String locator, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            record(command, locator, System.nanoTime() - start);
+        }
+    }
+
+    public static void writeReport() {
+        if (BY_COMMAND.isEmpty()) {
+            return;
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("commands", summaries(BY_COMMAND));
+        report.put("locators", summaries(BY_LOCATOR));
+        Map<String, Object> tests = new TreeMap<>();
+        BY_TEST.forEach((test, commands) -> {
+            Map<String, Object> totals = new TreeMap<>();
+            commands.forEach((command, testTotals) -> totals.put(command, testTotals.summary()));
+            tests.put(test, totals);
+        });
+        report.put("tests", tests);
+
+        Path file = Paths.get(System.getProperty("command.timing.report", "test-output/command-latency.json"));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(file)) {
+                writer.write(new Json().toJson(report));
+            }
+            System.out.println("Command latency report written to " + file);
+        } catch (IOException e) {
+            System.err.println("Could not write the command latency report: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> summaries(Map<String, LatencyHistogram> histograms) {
+        Map<String, Object> summaries = new TreeMap<>();
+        histograms.forEach((key, histogram) -> summaries.put(key, histogram.summary()));
+        return summaries;
+    }
+
+    // the three commands that took the most time in total
+    public static String getStats() {
+        StringBuilder stats = new StringBuilder("Command timings:");
+        BY_COMMAND.entrySet().stream()
+                .sorted(Comparator.comparingDouble((Map.Entry<String, LatencyHistogram> entry) -> entry.getValue().getTotalMillis()).reversed())
+                .limit(3)
+                .forEach(entry -> stats.append(String.format(" %s %d calls %.0f ms (p90 %.1f ms);", entry.getKey(),
+                        entry.getValue().getCount(), entry.getValue().getTotalMillis(), entry.getValue().percentileMillis(90))));
+        return stats.toString();
+    }
+
+    private static final class TestTotals {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void add(long elapsed) {
+            count.increment();
+            nanos.add(elapsed);
+        }
+
+        Map<String, Object> summary() {
+            return Map.of("count", count.sum(), "totalMs", nanos.sum() / 1_000_000);
+        }
+    }
+}
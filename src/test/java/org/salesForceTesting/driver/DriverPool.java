@@ -0,0 +1,343 @@
+package org.salesForceTesting.driver;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* Keeps a set of warm Chrome sessions so tests don't pay the browser start up cost for every row.
+ * A session is leased for one test and handed back afterwards, when it comes back
+ * the cookies, storage and the current page are cleared so the next test starts clean.
+ * Sessions are thrown away (and a new one is started on the next lease) when:
+ *  - the test that used it failed
+ *  - it has been used pool.maxUses times
+ *  - it doesn't respond to the health check
+ *
+ * Settings (system properties):
+ *  pool.size     - max number of browsers open at the same time (defaults to test.workers, or 1)
+ *  pool.maxUses  - number of leases before a browser is recycled (default 25)
+ *  page.load.strategy - normal, eager or none (default eager)
+ *  launch.profile - how Chrome is started, see LaunchProfile (default DEFAULT)
+ *  replay.mode    - record or replay the responses of every session, see ReplayCache (default off)
+ */
+public class DriverPool {
+
+    private static final DriverPool INSTANCE = new DriverPool(
+            Integer.getInteger("pool.size", Integer.getInteger("test.workers", 1)),
+            Integer.getInteger("pool.maxUses", 25));
+
+    private final int maxSize;
+    private final int maxUses;
+
+    // idle sessions ready to be leased, most recently used first so warm browsers are reused
+    private final Deque<PooledSession> idle = new ArrayDeque<>();
+    private int openSessions;
+    // set by shutdown(), no browser is started or pooled after that
+    private boolean closed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition sessionReturned = lock.newCondition();
+
+    // statistics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong failedHealthChecks = new AtomicLong();
+
+    DriverPool(int maxSize, int maxUses) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("pool.size has to be at least 1 but was " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.maxUses = Math.max(1, maxUses);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "driver-pool-shutdown"));
+    }
+
+    public static DriverPool getInstance() {
+        return INSTANCE;
+    }
+
+    // the most browsers that can be leased at the same time
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /* Hands out a healthy session, a warm one if there is one idle (a hit)
+     * otherwise a newly started browser (a miss). Blocks when pool.size browsers are already leased.
+     * Throws IllegalStateException once the pool has been shut down.
+     */
+    public PooledSession lease() {
+        while (true) {
+            PooledSession session = null;
+            boolean startNew = false;
+
+            lock.lock();
+            try {
+                while (!closed && idle.isEmpty() && openSessions >= maxSize) {
+                    sessionReturned.awaitUninterruptibly();
+                }
+                if (closed) {
+                    throw new IllegalStateException("the driver pool has been shut down");
+                }
+                if (!idle.isEmpty()) {
+                    session = idle.pollFirst();
+                } else {
+                    openSessions++;
+                    startNew = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (startNew) {
+                try {
+                    session = startSession();
+                } catch (RuntimeException | Error e) {
+                    // the slot has to be given back whatever went wrong, or the next lease waits forever
+                    discard(null);
+                    throw e;
+                }
+                misses.incrementAndGet();
+                return session;
+            }
+
+            if (isHealthy(session)) {
+                hits.incrementAndGet();
+                return session;
+            }
+
+            // the idle browser died, throw it away and try again
+            failedHealthChecks.incrementAndGet();
+            discard(session);
+        }
+    }
+
+    /* Gives a session back to the pool.
+     * If the test failed, the session has been used enough times or the pool has been shut down the browser is closed,
+     * otherwise its state is reset and it goes back on the idle list.
+     */
+    public void release(PooledSession session, boolean testFailed) {
+        if (session == null) {
+            return;
+        }
+        int uses = session.markUsed();
+
+        if (testFailed || uses >= maxUses || !resetState(session)) {
+            recycled.incrementAndGet();
+            discard(session);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.addFirst(session);
+                sessionReturned.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // the pool was shut down while the session was leased
+        discard(session);
+    }
+
+    /* Closes every idle browser, leased browsers are closed when they are released.
+     * Only the first call does anything, the shutdown hook runs it again after the suite or a benchmark did.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            while (!idle.isEmpty()) {
+                quitQuietly(idle.pollFirst());
+                openSessions--;
+            }
+            sessionReturned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PooledSession startSession() {
+        LaunchProfile profile = LaunchProfile.configured();
+        if (profile.isPrewarmed()) {
+            // making the template is a one off, it isn't part of the launch time
+            UserDataTemplate.ensureReady();
+        }
+        long launchStart = System.nanoTime();
+        Path userDataDir = profile.isPrewarmed() ? UserDataTemplate.cloneForSession() : null;
+        WebDriver driver;
+        try {
+            driver = createDriver(profile, userDataDir);
+        } catch (RuntimeException | Error e) {
+            UserDataTemplate.delete(userDataDir);
+            throw e;
+        }
+        profile.recordLaunch(System.nanoTime() - launchStart);
+        NetworkFilter filter = null;
+        if (NetworkFilter.isEnabled()) {
+            try {
+                filter = NetworkFilter.fromSystemProperties();
+                filter.attach(driver);
+            } catch (RuntimeException e) {
+                System.err.println("Could not attach the network filter, requests will not be filtered: " + e.getMessage());
+                filter = null;
+            }
+        } else if (NetworkFilterGuard.isEnabled()) {
+            // the guard's unfiltered run measures what the filtered runs block
+            try {
+                filter = NetworkFilter.observer();
+                filter.attach(driver);
+            } catch (RuntimeException e) {
+                System.err.println("Could not measure the requests for the network filter guard: " + e.getMessage());
+                filter = null;
+            }
+        }
+        if (ReplayCache.isEnabled()) {
+            try {
+                ReplayCache.getInstance().attach(driver, filter);
+            } catch (RuntimeException e) {
+                System.err.println("Could not attach the replay cache, requests will go to the network: " + e.getMessage());
+                // the filter left Fetch to the cache, it has to block the resource types itself now
+                if (filter != null) {
+                    try {
+                        filter.attachFetch(driver);
+                    } catch (RuntimeException fetchError) {
+                        System.err.println("Could not attach the network filter's resource type blocking: " + fetchError.getMessage());
+                    }
+                }
+            }
+        }
+        SessionRecorder recorder = null;
+        if (SessionRecorder.isEnabled()) {
+            try {
+                recorder = new SessionRecorder();
+                recorder.attach(driver);
+            } catch (RuntimeException e) {
+                System.err.println("Could not attach the session recorder, failure bundles will have no console or network log: " + e.getMessage());
+                recorder = null;
+            }
+        }
+        // the tests get the timed driver, DevTools and the pool's reset and health checks use the raw one
+        WebDriver timedDriver = CommandTimings.isEnabled() ? CommandTimings.decorate(driver) : driver;
+        return new PooledSession(timedDriver, driver, filter, recorder, userDataDir);
+    }
+
+    private WebDriver createDriver(LaunchProfile profile, Path userDataDir) {
+        // only the first call does the lookup, after that it's the cached result
+        DriverResolver.resolve();
+        ChromeOptions options = profile.options(userDataDir);
+        // eager: get() returns once the HTML is parsed, the contact page waits for the form with its readiness probe
+        options.setPageLoadStrategy(PageLoadStrategy.fromString(System.getProperty("page.load.strategy", "eager")));
+        WebDriver driver = new ChromeDriver(options);
+        if (!profile.isHeadless()) {
+            // headless browsers get their fixed window size from the profile
+            driver.manage().window().maximize();
+        }
+        // no implicit wait, all waiting is done through WaitPolicy
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        return driver;
+    }
+
+    // a cheap call that goes all the way to the browser, if it throws the session is gone
+    private boolean isHealthy(PooledSession session) {
+        try {
+            session.getRawDriver().getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            System.err.println("Pooled browser failed the health check: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /* Puts the browser back to a blank state:
+     * extra windows closed, storage and cookies cleared and the page set to about:blank.
+     */
+    private boolean resetState(PooledSession session) {
+        WebDriver driver = session.getRawDriver();
+        try {
+            String firstWindow = driver.getWindowHandles().iterator().next();
+            for (String handle : driver.getWindowHandles()) {
+                if (!handle.equals(firstWindow)) {
+                    driver.switchTo().window(handle).close();
+                }
+            }
+            driver.switchTo().window(firstWindow);
+
+            // storage can only be cleared while we are still on the page's origin
+            ((JavascriptExecutor) driver).executeScript(
+                    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+
+            // deleteAllCookies only removes the cookies of the current domain, CDP clears all of them
+            HasCdp cdp = PooledSession.unwrap(driver, HasCdp.class);
+            if (cdp != null) {
+                cdp.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+            } else {
+                driver.manage().deleteAllCookies();
+            }
+
+            driver.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            System.err.println("Could not reset the pooled browser, it will be recycled: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void discard(PooledSession session) {
+        quitQuietly(session);
+        lock.lock();
+        try {
+            openSessions--;
+            sessionReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void quitQuietly(PooledSession session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            session.getRawDriver().quit();
+        } catch (Exception e) {
+            System.err.println("Error closing pooled browser: " + e.getMessage());
+        }
+        UserDataTemplate.delete(session.getUserDataDir());
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRecycled() {
+        return recycled.get();
+    }
+
+    public String getStats() {
+        long total = hits.get() + misses.get();
+        double hitRatio = total == 0 ? 0 : (hits.get() * 100.0) / total;
+        return String.format("Driver pool: size=%d, leases=%d, hits=%d, misses=%d (hit ratio %.1f%%), recycled=%d, failed health checks=%d",
+                maxSize, total, hits.get(), misses.get(), hitRatio, recycled.get(), failedHealthChecks.get());
+    }
+}
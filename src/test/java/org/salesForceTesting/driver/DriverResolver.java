@@ -0,0 +1,279 @@
+package org.salesForceTesting.driver;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/* Finds the chromedriver binary once per JVM and publishes it through the webdriver.chrome.driver property.
+ * The lookup order is:
+ *  1. webdriver.chrome.driver if it is already set and the file exists (a warning when its major version isn't Chrome's)
+ *  2. a driver in the local cache directory matching the installed Chrome version (same major version at least)
+ *  3. /usr/bin/chromedriver or a chromedriver on the PATH (same major version as Chrome)
+ *  4. WebDriverManager (needs network), skipped when driver.offline=true
+ * Nothing in steps 1-3 touches the network.
+ *
+ * Settings (system properties):
+ *  chrome.binary     - path to the Chrome binary used to detect the version (default: searched on the PATH)
+ *  driver.cache.dir  - where drivers are cached (default: ~/.cache/selenium/chromedriver, the WebDriverManager cache)
+ *  driver.offline    - true to never go to the network
+ */
+public final class DriverResolver {
+
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)\\.(\\d+)\\.(\\d+)");
+    private static final String DRIVER_NAME = isWindows() ? "chromedriver.exe" : "chromedriver";
+
+    private DriverResolver() {
+    }
+
+    public record Resolution(String driverPath, String chromeVersion, String source, long elapsedMillis) {
+    }
+
+    // the resolution runs the first time it's asked for and never again for the JVM, a failure is kept as well
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static Resolution resolution;
+    private static RuntimeException failure;
+
+    public static Resolution resolve() {
+        LOCK.lock();
+        try {
+            if (resolution == null && failure == null) {
+                try {
+                    resolution = resolveDriver();
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                // every later session fails with the real cause instead of looking the driver up again
+                throw new IllegalStateException("chromedriver could not be resolved: " + failure.getMessage(), failure);
+            }
+            return resolution;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static Resolution resolveDriver() {
+        long start = System.nanoTime();
+        String chromeVersion = detectChromeVersion();
+        String path = null;
+        String source = null;
+
+        String configured = System.getProperty("webdriver.chrome.driver");
+        if (configured != null && new File(configured).canExecute()) {
+            // set on purpose, so it is used anyway, the warning explains the session error a stale driver gives later
+            String driverVersion = chromeVersion == null ? null : versionFromCommand(configured);
+            if (chromeVersion != null && !sameMajor(driverVersion, chromeVersion)) {
+                System.err.println("WARNING: webdriver.chrome.driver " + configured + " is chromedriver " + driverVersion
+                        + " but Chrome is " + chromeVersion + ", starting a session will probably fail");
+            }
+            path = configured;
+            source = "webdriver.chrome.driver";
+        }
+
+        if (path == null) {
+            Path cached = findCachedDriver(chromeVersion);
+            if (cached != null) {
+                path = cached.toString();
+                source = "cache";
+            }
+        }
+
+        if (path == null) {
+            Path installed = findInstalledDriver(chromeVersion);
+            if (installed != null) {
+                path = installed.toString();
+                source = "installed";
+            }
+        }
+
+        if (path == null && !Boolean.getBoolean("driver.offline")) {
+            // last resort, this downloads the driver into the cache so the next run finds it offline
+            WebDriverManager manager = WebDriverManager.chromedriver();
+            if (chromeVersion != null) {
+                manager.browserVersion(chromeVersion);
+            }
+            manager.setup();
+            path = manager.getDownloadedDriverPath();
+            source = "WebDriverManager";
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (path == null) {
+            throw new IllegalStateException("No chromedriver found for Chrome " + chromeVersion
+                    + " in " + cacheDirectory() + " or on the PATH, and driver.offline is set");
+        }
+
+        System.setProperty("webdriver.chrome.driver", path);
+        System.out.println("Resolved chromedriver " + path + " for Chrome " + chromeVersion
+                + " from " + source + " in " + elapsed + " ms");
+        return new Resolution(path, chromeVersion, source, elapsed);
+    }
+
+    // runs "chrome --version", returns something like 135.0.7049.84 or null if Chrome couldn't be found
+    private static String detectChromeVersion() {
+        List<String> candidates = new ArrayList<>();
+        String configured = System.getProperty("chrome.binary");
+        if (configured != null) {
+            candidates.add(configured);
+        }
+        candidates.add("google-chrome");
+        candidates.add("google-chrome-stable");
+        candidates.add("chromium");
+        candidates.add("chromium-browser");
+        candidates.add("/Applications/Google Chrome.app/Contents/MacOS/Google Chrome");
+
+        for (String binary : candidates) {
+            String version = versionFromCommand(binary);
+            if (version != null) {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    /* Runs "<binary> --version" and picks the version number out of the first line, null if that didn't work.
+     * The process has to finish within 5 seconds before its output is read, a binary that hangs is killed.
+     */
+    private static String versionFromCommand(String binary) {
+        try {
+            Process process = new ProcessBuilder(binary, "--version").redirectErrorStream(true).start();
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                System.err.println(binary + " --version didn't answer within 5 seconds");
+                return null;
+            }
+            String output;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                output = reader.readLine();
+            }
+            if (output != null) {
+                Matcher matcher = VERSION.matcher(output);
+                if (matcher.find()) {
+                    return matcher.group();
+                }
+            }
+        } catch (IOException e) {
+            // not installed under this name
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /* The cache is laid out as <cache dir>/<platform>/<version>/chromedriver.
+     * An exact version match wins, otherwise the newest driver with the same major version.
+     * Without a known Chrome version the newest cached driver is used.
+     */
+    private static Path findCachedDriver(String chromeVersion) {
+        Path cacheDir = cacheDirectory();
+        if (!Files.isDirectory(cacheDir)) {
+            return null;
+        }
+
+        List<Path> drivers;
+        try (Stream<Path> files = Files.walk(cacheDir, 4)) {
+            drivers = files.filter(file -> file.getFileName().toString().equals(DRIVER_NAME))
+                    .filter(Files::isExecutable)
+                    .filter(file -> versionOf(file) != null)
+                    .toList();
+        } catch (IOException e) {
+            System.err.println("Could not read the driver cache " + cacheDir + ": " + e.getMessage());
+            return null;
+        }
+
+        String major = chromeVersion == null ? null : chromeVersion.substring(0, chromeVersion.indexOf('.'));
+        return drivers.stream()
+                .filter(file -> chromeVersion == null || versionOf(file).equals(chromeVersion)
+                        || versionOf(file).startsWith(major + "."))
+                .max(Comparator.comparing((Path file) -> versionOf(file).equals(chromeVersion))
+                        .thenComparing(file -> versionOf(file), DriverResolver::compareVersions))
+                .orElse(null);
+    }
+
+    // like the cache, an installed driver has to have the same major version as Chrome (when that is known)
+    private static Path findInstalledDriver(String chromeVersion) {
+        List<Path> candidates = new ArrayList<>();
+        candidates.add(Paths.get("/usr/bin", DRIVER_NAME));
+        String pathVariable = System.getenv("PATH");
+        if (pathVariable != null) {
+            for (String directory : pathVariable.split(File.pathSeparator)) {
+                candidates.add(Paths.get(directory, DRIVER_NAME));
+            }
+        }
+        for (Path candidate : candidates) {
+            if (Files.isExecutable(candidate) && matchesChrome(candidate, chromeVersion)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matchesChrome(Path driver, String chromeVersion) {
+        if (chromeVersion == null) {
+            return true;
+        }
+        String driverVersion = versionFromCommand(driver.toString());
+        if (!sameMajor(driverVersion, chromeVersion)) {
+            System.err.println("Skipping " + driver + ": it is chromedriver " + driverVersion + " but Chrome is " + chromeVersion);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean sameMajor(String driverVersion, String chromeVersion) {
+        String major = chromeVersion.substring(0, chromeVersion.indexOf('.'));
+        return driverVersion != null && driverVersion.startsWith(major + ".");
+    }
+
+    // the version is the name of a parent directory of the driver, e.g. .../linux64/135.0.7049.84/chromedriver
+    private static String versionOf(Path driver) {
+        for (Path dir = driver.getParent(); dir != null && dir.getFileName() != null; dir = dir.getParent()) {
+            Matcher matcher = VERSION.matcher(dir.getFileName().toString());
+            if (matcher.matches()) {
+                return matcher.group();
+            }
+        }
+        return null;
+    }
+
+    private static int compareVersions(String a, String b) {
+        String[] left = a.split("\\.");
+        String[] right = b.split("\\.");
+        for (int i = 0; i < Math.min(left.length, right.length); i++) {
+            int result = Integer.compare(Integer.parseInt(left[i]), Integer.parseInt(right[i]));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(left.length, right.length);
+    }
+
+    private static Path cacheDirectory() {
+        String configured = System.getProperty("driver.cache.dir");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".cache", "selenium", "chromedriver");
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("win");
+    }
+}
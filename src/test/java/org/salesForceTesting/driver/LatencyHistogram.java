@@ -0,0 +1,86 @@
+package org.salesForceTesting.driver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/* A fixed size latency histogram, cheap enough to update on every WebDriver command from every thread.
+ * The buckets grow by 10% from 10 microseconds up to about 2 minutes, so a percentile is at most 10% too high.
+ * Count, total and max are exact.
+ */
+public class LatencyHistogram {
+
+    private static final double GROWTH = 1.1;
+    private static final long SMALLEST_MICROS = 10;
+    private static final int BUCKETS = 175;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros <= SMALLEST_MICROS) {
+            return 0;
+        }
+        int bucket = (int) Math.ceil(Math.log((double) micros / SMALLEST_MICROS) / Math.log(GROWTH));
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static double upperBoundMillis(int bucket) {
+        return SMALLEST_MICROS * Math.pow(GROWTH, bucket) / 1_000.0;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalMillis() {
+        return totalMicros.sum() / 1_000.0;
+    }
+
+    // the upper bound of the bucket the percentile falls in, capped at the real max
+    public double percentileMillis(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundMillis(bucket), maxMicros.get() / 1_000.0);
+            }
+        }
+        return maxMicros.get() / 1_000.0;
+    }
+
+    // what goes into the JSON report
+    public Map<String, Object> summary() {
+        long total = count.sum();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", total);
+        summary.put("totalMs", round(getTotalMillis()));
+        summary.put("meanMs", total == 0 ? 0 : round(getTotalMillis() / total));
+        summary.put("p50Ms", round(percentileMillis(50)));
+        summary.put("p90Ms", round(percentileMillis(90)));
+        summary.put("p99Ms", round(percentileMillis(99)));
+        summary.put("maxMs", round(maxMicros.get() / 1_000.0));
+        return summary;
+    }
+
+    private static double round(double millis) {
+        return Math.round(millis * 100) / 100.0;
+    }
+}
@@ -0,0 +1,110 @@
+package org.salesForceTesting.driver;
+
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/* How the pool starts Chrome, picked with -Dlaunch.profile (default DEFAULT):
+ *  DEFAULT            - a headed window maximized to the screen and a fresh profile, like the tests always ran
+ *  HEADLESS           - new headless mode with a fixed window size (launch.window.size, default 1920,1080, so the
+ *                       layout matches a maximized window) and the background work a test never needs turned off:
+ *                       first run and default browser checks, component updates, sync, extensions,
+ *                       translate, background networking and timer throttling
+ *  HEADLESS_PREWARMED - HEADLESS, started on a copy of a profile that has already been through its first run
+ *                       (see UserDataTemplate), the copy goes on tmpfs and is deleted when the browser is closed
+ *
+ * Every launch is timed per profile and printed at the end of the run. Run the same suite with each profile
+ * and keep the cheapest one whose validation results are the same as DEFAULT's.
+ */
+public enum LaunchProfile {
+    DEFAULT(false, false),
+    HEADLESS(true, false),
+    HEADLESS_PREWARMED(true, true);
+
+    private static final LaunchProfile CONFIGURED = fromSystemProperty();
+
+    private static final List<String> BACKGROUND_SWITCHES = List.of(
+            "--no-first-run",
+            "--no-default-browser-check",
+            "--disable-background-networking",
+            "--disable-background-timer-throttling",
+            "--disable-backgrounding-occluded-windows",
+            "--disable-renderer-backgrounding",
+            "--disable-component-update",
+            "--disable-default-apps",
+            "--disable-extensions",
+            "--disable-sync",
+            "--disable-client-side-phishing-detection",
+            "--disable-features=Translate,OptimizationHints,MediaRouter",
+            "--metrics-recording-only",
+            "--mute-audio",
+            "--password-store=basic",
+            "--use-mock-keychain");
+
+    private final boolean headless;
+    private final boolean prewarmed;
+    private final LatencyHistogram launches = new LatencyHistogram();
+
+    LaunchProfile(boolean headless, boolean prewarmed) {
+        this.headless = headless;
+        this.prewarmed = prewarmed;
+    }
+
+    public static LaunchProfile fromSystemProperty() {
+        String configured = System.getProperty("launch.profile");
+        if (configured == null || configured.isBlank()) {
+            return DEFAULT;
+        }
+        return valueOf(configured.trim().toUpperCase().replace('-', '_'));
+    }
+
+    public static LaunchProfile configured() {
+        return CONFIGURED;
+    }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public boolean isPrewarmed() {
+        return prewarmed;
+    }
+
+    // the options for one browser, userDataDir is the session's copy of the template (null for a fresh profile)
+    ChromeOptions options(Path userDataDir) {
+        ChromeOptions options = new ChromeOptions();
+        if (headless) {
+            List<String> arguments = new ArrayList<>(BACKGROUND_SWITCHES);
+            arguments.add("--headless=new");
+            arguments.add("--window-size=" + System.getProperty("launch.window.size", "1920,1080"));
+            options.addArguments(arguments);
+        }
+        if (userDataDir != null) {
+            options.addArguments("--user-data-dir=" + userDataDir.toAbsolutePath());
+        }
+        return options;
+    }
+
+    // from asking for the profile copy to the browser being ready to take commands
+    void recordLaunch(long nanos) {
+        launches.record(nanos);
+    }
+
+    public static String getStats() {
+        StringBuilder builder = new StringBuilder("Launch profiles:");
+        for (LaunchProfile profile : values()) {
+            if (profile.launches.getCount() == 0) {
+                continue;
+            }
+            builder.append(String.format(" %s launches=%d avg=%.0f ms p50=%.0f ms p95=%.0f ms;", profile, profile.launches.getCount(),
+                    profile.launches.getTotalMillis() / profile.launches.getCount(),
+                    profile.launches.percentileMillis(50), profile.launches.percentileMillis(95)));
+        }
+        if (CONFIGURED.prewarmed) {
+            builder.append(' ').append(UserDataTemplate.getStats());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,233 @@
+package org.salesForceTesting.driver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/* Stops the browser from downloading things the contact form doesn't need (analytics, tag managers, fonts, video, images).
+ * It uses the Chrome DevTools protocol that ChromeDriver already gives us:
+ *  - URLs matching a deny pattern are blocked with Network.setBlockedURLs
+ *  - requests of a blocked resource type are paused with Fetch and failed, unless they match an allow pattern
+ * The blocked requests and the bytes that still came through are counted per test.
+ * A blocked request never has a response, so its bytes can only be estimated: the guard's unfiltered run
+ * (see NetworkFilterGuard) measures every URL, a filtered run adds up those sizes for the URLs it blocks.
+ * Blocked URLs that weren't measured are counted as of unknown size.
+ *
+ * Settings (system properties):
+ *  network.filter        - false turns the filter off (default true)
+ *  network.filter.deny   - comma separated URL patterns to block, * is a wildcard
+ *  network.filter.allow  - comma separated URL patterns that are never blocked by resource type
+ *  network.filter.types  - comma separated CDP resource types to block (default Image,Media,Font)
+ */
+public class NetworkFilter {
+
+    private static final String DEFAULT_DENY = String.join(",",
+            "*google-analytics.com*", "*googletagmanager.com*", "*doubleclick.net*", "*facebook.net*",
+            "*hotjar.com*", "*demdex.net*", "*omtrdc.net*", "*adobedtm.com*", "*bizographics.com*",
+            "*linkedin.com/px*", "*youtube.com*", "*vimeo.com*", "*qualtrics.com*", "*6sc.co*");
+
+    private static final Event<Map<String, Object>> REQUEST_PAUSED = event("Fetch.requestPaused");
+    private static final Event<Map<String, Object>> REQUEST_WILL_BE_SENT = event("Network.requestWillBeSent");
+    private static final Event<Map<String, Object>> LOADING_FAILED = event("Network.loadingFailed");
+    private static final Event<Map<String, Object>> LOADING_FINISHED = event("Network.loadingFinished");
+
+    private final List<String> denyPatterns;
+    private final List<Pattern> allowPatterns;
+    private final List<String> blockedTypes;
+
+    // requestId -> url of the requests still loading, the loading events only have the id
+    private final Map<String, String> pendingUrls = new ConcurrentHashMap<>();
+
+    private final AtomicLong blockedRequests = new AtomicLong();
+    private final AtomicLong blockedBytes = new AtomicLong();
+    private final AtomicLong blockedUnknownSize = new AtomicLong();
+    private final AtomicLong transferredBytes = new AtomicLong();
+    private final AtomicLong transferredRequests = new AtomicLong();
+
+    NetworkFilter(List<String> denyPatterns, List<String> allowPatterns, List<String> blockedTypes) {
+        this.denyPatterns = denyPatterns;
+        this.allowPatterns = allowPatterns.stream().map(NetworkFilter::toRegex).toList();
+        this.blockedTypes = blockedTypes;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("network.filter", "true"));
+    }
+
+    // blocks nothing, only measures, for the guard's unfiltered run
+    static NetworkFilter observer() {
+        return new NetworkFilter(List.of(), List.of(), List.of());
+    }
+
+    static NetworkFilter fromSystemProperties() {
+        return new NetworkFilter(
+                split(System.getProperty("network.filter.deny", DEFAULT_DENY)),
+                split(System.getProperty("network.filter.allow", "")),
+                split(System.getProperty("network.filter.types", "Image,Media,Font")));
+    }
+
+    // hooks the filter into a new browser session, the pool calls this right after the browser starts
+    void attach(WebDriver driver) {
+        HasDevTools withDevTools = PooledSession.unwrap(driver, HasDevTools.class);
+        if (withDevTools == null) {
+            System.err.println("Network filter needs a browser with DevTools, requests will not be filtered");
+            return;
+        }
+        DevTools devTools = withDevTools.getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+
+        devTools.addListener(REQUEST_WILL_BE_SENT, sent -> {
+            @SuppressWarnings("unchecked")
+            Object url = ((Map<String, Object>) sent.get("request")).get("url");
+            pendingUrls.put((String) sent.get("requestId"), String.valueOf(url));
+        });
+        devTools.addListener(LOADING_FAILED, failed -> {
+            String url = pendingUrls.remove((String) failed.get("requestId"));
+            // "inspector" is what setBlockedURLs reports, the Fetch failures are counted where they happen
+            if ("inspector".equals(failed.get("blockedReason"))) {
+                countBlocked(url);
+            }
+        });
+        devTools.addListener(LOADING_FINISHED, finished -> {
+            String url = pendingUrls.remove((String) finished.get("requestId"));
+            long bytes = ((Number) finished.getOrDefault("encodedDataLength", 0)).longValue();
+            transferredRequests.incrementAndGet();
+            transferredBytes.addAndGet(bytes);
+            if (url != null) {
+                NetworkFilterGuard.recordSize(url, bytes);
+            }
+        });
+
+        devTools.send(new Command<>("Network.enable", Map.of()));
+        devTools.send(new Command<>("Network.setBlockedURLs", Map.of("urls", denyPatterns)));
+
+        // with the replay cache on, the cache owns Fetch and asks blocks() about every request it pauses
+        if (!ReplayCache.isEnabled()) {
+            attachFetch(devTools);
+        }
+    }
+
+    /* Blocks the resource types with Fetch, attach() does it unless the replay cache owns Fetch.
+     * The pool calls it when the cache could not be attached, so the types are still blocked.
+     */
+    void attachFetch(WebDriver driver) {
+        HasDevTools withDevTools = PooledSession.unwrap(driver, HasDevTools.class);
+        if (withDevTools != null) {
+            attachFetch(withDevTools.getDevTools());
+        }
+    }
+
+    private void attachFetch(DevTools devTools) {
+        if (!blockedTypes.isEmpty()) {
+            devTools.addListener(REQUEST_PAUSED, paused -> {
+                @SuppressWarnings("unchecked")
+                String url = (String) ((Map<String, Object>) paused.get("request")).get("url");
+                Object requestId = paused.get("requestId");
+                if (isAllowed(url)) {
+                    devTools.send(new Command<>("Fetch.continueRequest", Map.of("requestId", requestId)));
+                } else {
+                    countBlocked(url);
+                    devTools.send(new Command<>("Fetch.failRequest", Map.of("requestId", requestId, "errorReason", "BlockedByClient")));
+                }
+            });
+            List<Map<String, Object>> patterns = new ArrayList<>();
+            for (String type : blockedTypes) {
+                patterns.add(Map.of("urlPattern", "*", "resourceType", type, "requestStage", "Request"));
+            }
+            devTools.send(new Command<>("Fetch.enable", Map.of("patterns", patterns)));
+        }
+    }
+
+    List<String> getBlockedTypes() {
+        return blockedTypes;
+    }
+
+    // true (and counted as blocked) when a request of this resource type has to be failed
+    boolean blocks(String resourceType, String url) {
+        if (!blockedTypes.contains(resourceType) || isAllowed(url)) {
+            return false;
+        }
+        countBlocked(url);
+        return true;
+    }
+
+    private void countBlocked(String url) {
+        blockedRequests.incrementAndGet();
+        long size = url == null ? -1 : NetworkFilterGuard.knownSize(url);
+        if (size >= 0) {
+            blockedBytes.addAndGet(size);
+        } else {
+            blockedUnknownSize.incrementAndGet();
+        }
+    }
+
+    private boolean isAllowed(String url) {
+        for (Pattern allow : allowPatterns) {
+            if (allow.matcher(url).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // counters are per test, BaseTestCore resets them when the session is leased
+    public void resetCounters() {
+        blockedRequests.set(0);
+        blockedBytes.set(0);
+        blockedUnknownSize.set(0);
+        transferredBytes.set(0);
+        transferredRequests.set(0);
+    }
+
+    public long getBlockedRequests() {
+        return blockedRequests.get();
+    }
+
+    // an estimate from the sizes the guard's unfiltered run measured, see getBlockedUnknownSize()
+    public long getBlockedBytes() {
+        return blockedBytes.get();
+    }
+
+    // blocked requests whose URL was never measured, they aren't in getBlockedBytes()
+    public long getBlockedUnknownSize() {
+        return blockedUnknownSize.get();
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes.get();
+    }
+
+    public String getStats() {
+        return String.format("Network filter: blocked %d requests (about %d KB saved, %d of unknown size), %d requests let through (%d KB)",
+                blockedRequests.get(), blockedBytes.get() / 1024, blockedUnknownSize.get(),
+                transferredRequests.get(), transferredBytes.get() / 1024);
+    }
+
+    private static Event<Map<String, Object>> event(String method) {
+        return new Event<>(method, input -> input.read(Json.MAP_TYPE));
+    }
+
+    private static Pattern toRegex(String wildcard) {
+        String[] parts = wildcard.split("\\*", -1);
+        StringBuilder regex = new StringBuilder(Pattern.quote(parts[0]));
+        for (int i = 1; i < parts.length; i++) {
+            regex.append(".*").append(Pattern.quote(parts[i]));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).filter(part -> !part.isEmpty()).toList();
+    }
+}
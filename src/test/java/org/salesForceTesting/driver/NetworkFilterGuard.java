@@ -0,0 +1,156 @@
+package org.salesForceTesting.driver;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Guard mode for the NetworkFilter (-Dnetwork.filter.guard=true).
+ * The validation outcome of every test is saved to test-output/network-guard/filtered.properties
+ * (or unfiltered.properties when the run had -Dnetwork.filter=false). When both files are there
+ * the outcomes are compared and every test where blocking made a difference is printed.
+ * So: run once with the filter and once without, the second run prints the comparison.
+ *
+ * The unfiltered run also measures the size of every URL the browser loads (without the query string)
+ * into sizes.properties, the filtered runs estimate the bytes they saved from it.
+ */
+public final class NetworkFilterGuard {
+
+    private static final Path GUARD_DIR = Paths.get("test-output", "network-guard");
+    private static final Path SIZES_FILE = GUARD_DIR.resolve("sizes.properties");
+    private static final Map<String, String> OUTCOMES = new ConcurrentHashMap<>();
+    // url -> bytes measured in this (unfiltered) run
+    private static final Map<String, Long> MEASURED_SIZES = new ConcurrentHashMap<>();
+
+    private NetworkFilterGuard() {
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("network.filter.guard");
+    }
+
+    public static void record(String test, String outcome) {
+        if (isEnabled()) {
+            OUTCOMES.put(test, outcome);
+        }
+    }
+
+    // only the unfiltered run measures, a filtered run would just see the sizes of what got through
+    static void recordSize(String url, long bytes) {
+        if (isEnabled() && !NetworkFilter.isEnabled()) {
+            MEASURED_SIZES.merge(sizeKey(url), bytes, Math::max);
+        }
+    }
+
+    // the bytes the unfiltered run measured for this url, -1 when it never loaded it
+    static long knownSize(String url) {
+        return KnownSizes.SIZES.getOrDefault(sizeKey(url), -1L);
+    }
+
+    // the sizes file is read once, the first time a request is blocked
+    private static final class KnownSizes {
+        private static final Map<String, Long> SIZES = loadSizes();
+    }
+
+    private static Map<String, Long> loadSizes() {
+        Map<String, Long> sizes = new ConcurrentHashMap<>();
+        if (!Files.exists(SIZES_FILE)) {
+            return sizes;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(SIZES_FILE)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            System.err.println("Could not read the measured sizes, blocked bytes will be unknown: " + e.getMessage());
+            return sizes;
+        }
+        for (String url : properties.stringPropertyNames()) {
+            try {
+                sizes.put(url, Long.parseLong(properties.getProperty(url).trim()));
+            } catch (NumberFormatException e) {
+                // a broken line only loses that url's size
+            }
+        }
+        return sizes;
+    }
+
+    private static String sizeKey(String url) {
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+
+    // the sizes of the last unfiltered run are added to the ones already saved
+    private static void saveSizes() {
+        Map<String, Long> sizes = loadSizes();
+        sizes.putAll(MEASURED_SIZES);
+        Properties properties = new Properties();
+        sizes.forEach((url, bytes) -> properties.setProperty(url, Long.toString(bytes)));
+        try {
+            Files.createDirectories(GUARD_DIR);
+            try (Writer writer = Files.newBufferedWriter(SIZES_FILE)) {
+                properties.store(writer, "Bytes of every url in the unfiltered run, used to estimate what the filter saves");
+            }
+        } catch (IOException e) {
+            System.err.println("Network filter guard could not save the measured sizes: " + e.getMessage());
+        }
+    }
+
+    // saves this run's outcomes and compares them with the last run of the other mode
+    public static void finish() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (!MEASURED_SIZES.isEmpty()) {
+            saveSizes();
+        }
+        if (OUTCOMES.isEmpty()) {
+            return;
+        }
+        boolean filtered = NetworkFilter.isEnabled();
+        Path thisRun = GUARD_DIR.resolve(filtered ? "filtered.properties" : "unfiltered.properties");
+        Path otherRun = GUARD_DIR.resolve(filtered ? "unfiltered.properties" : "filtered.properties");
+
+        try {
+            Files.createDirectories(GUARD_DIR);
+            Properties outcomes = new Properties();
+            outcomes.putAll(OUTCOMES);
+            try (Writer writer = Files.newBufferedWriter(thisRun)) {
+                outcomes.store(writer, "Validation outcomes with the network filter " + (filtered ? "on" : "off"));
+            }
+
+            if (!Files.exists(otherRun)) {
+                System.out.println("Network filter guard: saved " + OUTCOMES.size() + " outcomes to " + thisRun
+                        + ", run again with -Dnetwork.filter=" + !filtered + " to compare");
+                return;
+            }
+
+            Properties other = new Properties();
+            try (Reader reader = Files.newBufferedReader(otherRun)) {
+                other.load(reader);
+            }
+            int compared = 0;
+            int different = 0;
+            for (String test : new TreeSet<>(OUTCOMES.keySet())) {
+                String otherOutcome = other.getProperty(test);
+                if (otherOutcome == null) {
+                    continue;
+                }
+                compared++;
+                if (!otherOutcome.equals(OUTCOMES.get(test))) {
+                    different++;
+                    System.out.println("Network filter guard: " + test + " filtered=" + (filtered ? OUTCOMES.get(test) : otherOutcome)
+                            + " unfiltered=" + (filtered ? otherOutcome : OUTCOMES.get(test)));
+                }
+            }
+            System.out.println("Network filter guard: compared " + compared + " tests, blocking changed the outcome of " + different);
+        } catch (IOException e) {
+            System.err.println("Network filter guard could not save or read the outcomes: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.salesForceTesting.driver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+
+import java.nio.file.Path;
+
+/* A browser session that is owned by the DriverPool.
+ * Tests only ever see the WebDriver, the pool uses the rest of the
+ * information to decide when the browser should be recycled.
+ */
+public class PooledSession {
+
+    private final WebDriver driver;
+    private final WebDriver rawDriver;
+    private final NetworkFilter networkFilter;
+    private final SessionRecorder recorder;
+    private final Path userDataDir;
+    private int uses;
+
+    PooledSession(WebDriver driver, WebDriver rawDriver, NetworkFilter networkFilter, SessionRecorder recorder, Path userDataDir) {
+        this.driver = driver;
+        this.rawDriver = rawDriver;
+        this.networkFilter = networkFilter;
+        this.recorder = recorder;
+        this.userDataDir = userDataDir;
+    }
+
+    public WebDriver getDriver() {
+        return driver;
+    }
+
+    // the browser without the command timing decorator, for the pool's own calls that shouldn't be timed
+    WebDriver getRawDriver() {
+        return rawDriver;
+    }
+
+    /* The browser under any decorators as the given capability (HasCdp, HasDevTools), null when it doesn't have it.
+     * The pages only get the timed driver, this is how they and the pool get to DevTools.
+     */
+    public static <T> T unwrap(WebDriver driver, Class<T> capability) {
+        WebDriver current = driver;
+        while (!capability.isInstance(current) && current instanceof WrapsDriver) {
+            current = ((WrapsDriver) current).getWrappedDriver();
+        }
+        return capability.isInstance(current) ? capability.cast(current) : null;
+    }
+
+    // null when the network filter is turned off
+    public NetworkFilter getNetworkFilter() {
+        return networkFilter;
+    }
+
+    // null when failure bundles are turned off
+    public SessionRecorder getRecorder() {
+        return recorder;
+    }
+
+    // the copy of the profile template the browser runs on, null when it started on a fresh profile
+    Path getUserDataDir() {
+        return userDataDir;
+    }
+
+    // called by the pool every time the session is handed back
+    int markUsed() {
+        return ++uses;
+    }
+}
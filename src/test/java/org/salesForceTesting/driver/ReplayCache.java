@@ -0,0 +1,311 @@
+package org.salesForceTesting.driver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Records the responses the browsers get for the contact page and its assets and plays them back on later runs,
+ * so a run can use the real page markup without going to the network.
+ * It works through the DevTools Fetch domain of every pooled browser instead of an HTTP proxy:
+ * Chrome hands us the decoded responses, so there are no certificates to fake for HTTPS.
+ *  record - every successful GET response is kept: the body in a content addressed store
+ *           (objects/<sha-256>, the same asset under two URLs is stored once), status and headers in index.json
+ *  replay - a GET request that is in the index is answered from the store, anything else goes to the network,
+ *           or fails with replay.strict=true
+ *
+ * Only one handler can own Fetch in a session, so when the cache is on it also fails the requests the
+ * NetworkFilter blocks by resource type, the results are the same with and without the cache.
+ * When the cache can't be attached to a session the pool hands Fetch back to the filter.
+ *
+ * Settings (system properties):
+ *  replay.mode   - off, record or replay (default off)
+ *  replay.dir    - where the store is (default test-output/replay-store)
+ *  replay.strict - true to fail requests that aren't recorded instead of going to the network (default false)
+ */
+public class ReplayCache {
+
+    private static final Event<Map<String, Object>> REQUEST_PAUSED =
+            new Event<>("Fetch.requestPaused", input -> input.read(Json.MAP_TYPE));
+
+    // the body is stored decoded, these would describe the encoded body the browser never gets
+    private static final Set<String> DROPPED_HEADERS = Set.of("content-encoding", "content-length", "transfer-encoding");
+
+    private static final ReplayCache INSTANCE = new ReplayCache(
+            System.getProperty("replay.mode", "off").trim().toLowerCase(),
+            Paths.get(System.getProperty("replay.dir", "test-output/replay-store")),
+            Boolean.getBoolean("replay.strict"));
+
+    private final String mode;
+    private final Path store;
+    private final Path objects;
+    private final boolean strict;
+    private final Json json = new Json();
+
+    // "GET <url>" -> status, headers and the body's hash
+    private final Map<String, Map<String, Object>> index = new ConcurrentHashMap<>();
+    private volatile boolean indexChanged;
+
+    // statistics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong recordedBytes = new AtomicLong();
+    private final AtomicLong duplicateBodies = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    ReplayCache(String mode, Path store, boolean strict) {
+        if (!Set.of("off", "record", "replay").contains(mode)) {
+            throw new IllegalArgumentException("replay.mode has to be off, record or replay but was " + mode);
+        }
+        this.mode = mode;
+        this.store = store;
+        this.objects = store.resolve("objects");
+        this.strict = strict;
+        if (!mode.equals("off")) {
+            loadIndex();
+        }
+    }
+
+    public static ReplayCache getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return !INSTANCE.mode.equals("off");
+    }
+
+    private boolean isRecording() {
+        return mode.equals("record");
+    }
+
+    // hooks the cache into a new browser session, filter is the session's NetworkFilter (null when that is off)
+    void attach(WebDriver driver, NetworkFilter filter) {
+        HasDevTools withDevTools = PooledSession.unwrap(driver, HasDevTools.class);
+        if (withDevTools == null) {
+            System.err.println("The replay cache needs a browser with DevTools, requests will go to the network");
+            return;
+        }
+        DevTools devTools = withDevTools.getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+
+        List<Map<String, Object>> patterns = new ArrayList<>();
+        if (isRecording()) {
+            // the requests are only paused before they go out when the filter may have to block them
+            if (filter != null) {
+                for (String type : filter.getBlockedTypes()) {
+                    patterns.add(Map.of("urlPattern", "*", "resourceType", type, "requestStage", "Request"));
+                }
+            }
+            patterns.add(Map.of("urlPattern", "*", "requestStage", "Response"));
+        } else {
+            patterns.add(Map.of("urlPattern", "*", "requestStage", "Request"));
+        }
+        devTools.send(new Command<>("Fetch.enable", Map.of("patterns", patterns)));
+
+        // added last, so a failed Fetch.enable leaves no cache listener behind to answer requests next to the filter's fallback
+        devTools.addListener(REQUEST_PAUSED, paused -> {
+            Object requestId = paused.get("requestId");
+            try {
+                if (paused.containsKey("responseStatusCode") || paused.containsKey("responseErrorReason")) {
+                    record(devTools, paused);
+                    devTools.send(new Command<>("Fetch.continueRequest", Map.of("requestId", requestId)));
+                } else {
+                    handleRequest(devTools, paused, filter);
+                }
+            } catch (RuntimeException e) {
+                errors.incrementAndGet();
+                System.err.println("Replay cache could not handle " + requestUrl(paused) + ": " + e.getMessage());
+                try {
+                    devTools.send(new Command<>("Fetch.continueRequest", Map.of("requestId", requestId)));
+                } catch (RuntimeException ignored) {
+                    // the request was already answered, or the session is gone
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handleRequest(DevTools devTools, Map<String, Object> paused, NetworkFilter filter) {
+        Object requestId = paused.get("requestId");
+        String url = requestUrl(paused);
+        if (filter != null && filter.blocks((String) paused.get("resourceType"), url)) {
+            devTools.send(new Command<>("Fetch.failRequest", Map.of("requestId", requestId, "errorReason", "BlockedByClient")));
+            return;
+        }
+        if (isRecording()) {
+            devTools.send(new Command<>("Fetch.continueRequest", Map.of("requestId", requestId)));
+            return;
+        }
+
+        String method = (String) ((Map<String, Object>) paused.get("request")).get("method");
+        Map<String, Object> entry = "GET".equals(method) ? index.get(key(method, url)) : null;
+        byte[] body = entry == null ? null : readBody((String) entry.get("body"));
+        if (body == null) {
+            misses.incrementAndGet();
+            if (strict) {
+                devTools.send(new Command<>("Fetch.failRequest", Map.of("requestId", requestId, "errorReason", "InternetDisconnected")));
+            } else {
+                devTools.send(new Command<>("Fetch.continueRequest", Map.of("requestId", requestId)));
+            }
+            return;
+        }
+
+        int size = body.length;
+        Map<String, Object> fulfill = new LinkedHashMap<>();
+        fulfill.put("requestId", requestId);
+        fulfill.put("responseCode", ((Number) entry.get("status")).intValue());
+        fulfill.put("responseHeaders", entry.get("headers"));
+        // Fetch wants the body base64 encoded, so it is on the heap three times for a moment (bytes, encoded, string)
+        fulfill.put("body", Base64.getEncoder().encodeToString(body));
+        devTools.send(new Command<>("Fetch.fulfillRequest", fulfill));
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void record(DevTools devTools, Map<String, Object> paused) {
+        Map<String, Object> request = (Map<String, Object>) paused.get("request");
+        Object status = paused.get("responseStatusCode");
+        if (!"GET".equals(request.get("method")) || !(status instanceof Number)
+                || ((Number) status).intValue() < 200 || ((Number) status).intValue() >= 300) {
+            return;
+        }
+        Map<String, Object> response = devTools.send(new Command<>("Fetch.getResponseBody",
+                Map.of("requestId", paused.get("requestId")), input -> input.read(Json.MAP_TYPE)));
+        String body = (String) response.get("body");
+        byte[] bytes = Boolean.TRUE.equals(response.get("base64Encoded"))
+                ? Base64.getDecoder().decode(body)
+                : body.getBytes(StandardCharsets.UTF_8);
+
+        List<Map<String, Object>> headers = new ArrayList<>();
+        for (Map<String, Object> header : (List<Map<String, Object>>) paused.getOrDefault("responseHeaders", List.of())) {
+            if (!DROPPED_HEADERS.contains(String.valueOf(header.get("name")).toLowerCase())) {
+                headers.add(Map.of("name", header.get("name"), "value", header.get("value")));
+            }
+        }
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("status", ((Number) status).intValue());
+        entry.put("headers", headers);
+        entry.put("body", writeBody(bytes));
+        entry.put("size", bytes.length);
+        index.put(key("GET", (String) request.get("url")), entry);
+        indexChanged = true;
+        recorded.incrementAndGet();
+        recordedBytes.addAndGet(bytes.length);
+    }
+
+    // stores the body under its hash, a body that is already there is not written again
+    private String writeBody(byte[] bytes) {
+        try {
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+            Path target = objectPath(hash);
+            if (Files.exists(target)) {
+                duplicateBodies.incrementAndGet();
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return hash;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("could not store the response body: " + e.getMessage(), e);
+        }
+    }
+
+    // null when the body isn't in the store, the request then goes to the network
+    private byte[] readBody(String hash) {
+        try {
+            return Files.readAllBytes(objectPath(hash));
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            return null;
+        }
+    }
+
+    private Path objectPath(String hash) {
+        return objects.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String key(String method, String url) {
+        return method + " " + url;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String requestUrl(Map<String, Object> paused) {
+        Map<String, Object> request = (Map<String, Object>) paused.get("request");
+        return request == null ? "?" : (String) request.get("url");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadIndex() {
+        Path file = store.resolve("index.json");
+        if (!Files.exists(file)) {
+            if (!isRecording()) {
+                System.err.println("Replay cache: nothing recorded in " + store + " yet, run with -Dreplay.mode=record first");
+            }
+            return;
+        }
+        try {
+            Map<String, Object> read = json.toType(Files.readString(file), Json.MAP_TYPE);
+            for (Map.Entry<String, Object> entry : read.entrySet()) {
+                index.put(entry.getKey(), (Map<String, Object>) entry.getValue());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Replay cache could not read " + file + ", starting with an empty index: " + e.getMessage());
+        }
+    }
+
+    // saves what was recorded, the entries of earlier recordings that weren't requested again are kept
+    public void finish() {
+        if (!isRecording() || !indexChanged) {
+            return;
+        }
+        Path file = store.resolve("index.json");
+        try {
+            Files.createDirectories(store);
+            Path temp = Files.createTempFile(store, "index", ".tmp");
+            Files.writeString(temp, json.toJson(new TreeMap<>(index)));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexChanged = false;
+            System.out.println("Replay cache: saved " + index.size() + " responses to " + file);
+        } catch (IOException e) {
+            System.err.println("Replay cache could not save " + file + ": " + e.getMessage());
+        }
+    }
+
+    public String getStats() {
+        if (isRecording()) {
+            return String.format("Replay cache (record): %d responses recorded (%d KB), %d bodies already stored, %d errors",
+                    recorded.get(), recordedBytes.get() / 1024, duplicateBodies.get(), errors.get());
+        }
+        long total = hits.get() + misses.get();
+        double hitRatio = total == 0 ? 0 : (hits.get() * 100.0) / total;
+        return String.format("Replay cache (%s): %d requests, hits=%d, misses=%d (hit ratio %.1f%%), %d KB served from disk, %d errors",
+                mode, total, hits.get(), misses.get(), hitRatio, bytesSaved.get() / 1024, errors.get());
+    }
+}
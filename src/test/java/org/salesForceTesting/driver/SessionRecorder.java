@@ -0,0 +1,190 @@
+package org.salesForceTesting.driver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/* Keeps the browser console and the network requests of the current page while a test runs,
+ * so a failed row can be diagnosed from its failure bundle instead of running it again by hand.
+ * Nothing is polled, the browser pushes DevTools events and they are kept in memory:
+ *  - console calls, uncaught exceptions and browser log entries (Runtime and Log domains)
+ *  - every request of the last navigation of the main frame with its status, size and timings (Network domain)
+ * Both lists are capped (recorder.max.entries, default 500) so a long test can't grow them forever.
+ *
+ * Turned off with -Dfailure.bundle=false.
+ */
+public class SessionRecorder {
+
+    private static final int MAX_ENTRIES = Integer.getInteger("recorder.max.entries", 500);
+
+    private static final Event<Map<String, Object>> CONSOLE_API_CALLED = event("Runtime.consoleAPICalled");
+    private static final Event<Map<String, Object>> EXCEPTION_THROWN = event("Runtime.exceptionThrown");
+    private static final Event<Map<String, Object>> LOG_ENTRY_ADDED = event("Log.entryAdded");
+    private static final Event<Map<String, Object>> REQUEST_WILL_BE_SENT = event("Network.requestWillBeSent");
+    private static final Event<Map<String, Object>> RESPONSE_RECEIVED = event("Network.responseReceived");
+    private static final Event<Map<String, Object>> LOADING_FINISHED = event("Network.loadingFinished");
+    private static final Event<Map<String, Object>> LOADING_FAILED = event("Network.loadingFailed");
+
+    // the events come in on the DevTools connection thread, the test thread reads them, everything goes through this lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<String> console = new ArrayDeque<>();
+    private final Map<String, Map<String, Object>> requests = new LinkedHashMap<>();
+    private volatile String mainFrameId;
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("failure.bundle", "true"));
+    }
+
+    // hooks the recorder into a new browser session, the pool calls this right after the browser starts
+    @SuppressWarnings("unchecked")
+    void attach(WebDriver driver) {
+        HasDevTools withDevTools = PooledSession.unwrap(driver, HasDevTools.class);
+        if (withDevTools == null) {
+            System.err.println("Session recorder needs a browser with DevTools, failure bundles will have no console or network log");
+            return;
+        }
+        DevTools devTools = withDevTools.getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+
+        devTools.addListener(CONSOLE_API_CALLED, called -> {
+            StringBuilder line = new StringBuilder("console.").append(called.get("type")).append(':');
+            for (Map<String, Object> argument : (List<Map<String, Object>>) called.getOrDefault("args", List.of())) {
+                Object value = argument.containsKey("value") ? argument.get("value") : argument.get("description");
+                line.append(' ').append(value);
+            }
+            addConsole(line.toString());
+        });
+        devTools.addListener(EXCEPTION_THROWN, thrown -> {
+            Map<String, Object> details = (Map<String, Object>) thrown.get("exceptionDetails");
+            Map<String, Object> exception = (Map<String, Object>) details.get("exception");
+            addConsole("uncaught: " + (exception != null ? exception.get("description") : details.get("text"))
+                    + " at " + details.get("url") + ":" + details.get("lineNumber"));
+        });
+        devTools.addListener(LOG_ENTRY_ADDED, added -> {
+            Map<String, Object> entry = (Map<String, Object>) added.get("entry");
+            addConsole(entry.get("source") + "." + entry.get("level") + ": " + entry.get("text")
+                    + (entry.get("url") != null ? " (" + entry.get("url") + ")" : ""));
+        });
+
+        devTools.addListener(REQUEST_WILL_BE_SENT, sent -> {
+            Map<String, Object> request = (Map<String, Object>) sent.get("request");
+            lock.lock();
+            try {
+                // a new document in the main frame is a new navigation, the requests of the old page are dropped
+                if ("Document".equals(sent.get("type")) && sent.get("frameId") != null && sent.get("frameId").equals(mainFrameId)) {
+                    requests.clear();
+                }
+                if (requests.size() >= MAX_ENTRIES) {
+                    return;
+                }
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("url", request.get("url"));
+                entry.put("method", request.get("method"));
+                entry.put("type", sent.get("type"));
+                entry.put("startTime", sent.get("timestamp"));
+                requests.put((String) sent.get("requestId"), entry);
+            } finally {
+                lock.unlock();
+            }
+        });
+        devTools.addListener(RESPONSE_RECEIVED, received -> {
+            Map<String, Object> response = (Map<String, Object>) received.get("response");
+            update((String) received.get("requestId"), entry -> {
+                entry.put("status", response.get("status"));
+                entry.put("mimeType", response.get("mimeType"));
+                entry.put("fromCache", response.get("fromDiskCache"));
+                entry.put("timing", response.get("timing"));
+            });
+        });
+        devTools.addListener(LOADING_FINISHED, finished -> update((String) finished.get("requestId"), entry -> {
+            entry.put("endTime", finished.get("timestamp"));
+            entry.put("encodedDataLength", finished.get("encodedDataLength"));
+        }));
+        devTools.addListener(LOADING_FAILED, failed -> update((String) failed.get("requestId"), entry -> {
+            entry.put("endTime", failed.get("timestamp"));
+            entry.put("error", failed.get("errorText"));
+            entry.put("blockedReason", failed.get("blockedReason"));
+        }));
+
+        devTools.send(new Command<>("Runtime.enable", Map.of()));
+        devTools.send(new Command<>("Log.enable", Map.of()));
+        devTools.send(new Command<>("Network.enable", Map.of()));
+        Map<String, Object> frameTree = devTools.send(new Command<>("Page.getFrameTree", Map.of(),
+                input -> input.read(Json.MAP_TYPE)));
+        mainFrameId = (String) ((Map<String, Object>) ((Map<String, Object>) frameTree.get("frameTree")).get("frame")).get("id");
+    }
+
+    private void addConsole(String line) {
+        lock.lock();
+        try {
+            if (console.size() >= MAX_ENTRIES) {
+                console.pollFirst();
+            }
+            console.addLast(line);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(String requestId, Consumer<Map<String, Object>> change) {
+        lock.lock();
+        try {
+            Map<String, Object> entry = requests.get(requestId);
+            if (entry != null) {
+                change.accept(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the recording is per test, BaseTestCore clears it when the session is leased
+    public void reset() {
+        lock.lock();
+        try {
+            console.clear();
+            requests.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<String> getConsole() {
+        lock.lock();
+        try {
+            return new ArrayList<>(console);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // copies, the DevTools thread keeps changing the live entries
+    public List<Map<String, Object>> getRequests() {
+        lock.lock();
+        try {
+            List<Map<String, Object>> copy = new ArrayList<>();
+            for (Map<String, Object> entry : requests.values()) {
+                copy.add(new LinkedHashMap<>(entry));
+            }
+            return copy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Event<Map<String, Object>> event(String method) {
+        return new Event<>(method, input -> input.read(Json.MAP_TYPE));
+    }
+}
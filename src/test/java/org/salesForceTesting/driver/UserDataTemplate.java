@@ -0,0 +1,179 @@
+package org.salesForceTesting.driver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/* The Chrome profile the HEADLESS_PREWARMED launch profile starts from.
+ * A fresh profile makes Chrome do its first run work on every launch (creating the profile database,
+ * preferences, component setup), the template has been through that once and every session gets a copy of it.
+ *
+ * The template is made the first time it's needed by starting and closing a headless Chrome on it,
+ * it stays in launch.template.dir (default test-output/chrome-template) so the next runs reuse it.
+ * Delete the directory to make a new one (after a Chrome update, for example).
+ * The copies go to launch.clone.dir, by default /dev/shm when it exists (tmpfs, nothing hits the disk)
+ * and the temp directory otherwise. They are copied with cp --reflink=auto, which shares the blocks on
+ * copy-on-write file systems, and with a plain Java copy where there is no cp.
+ */
+final class UserDataTemplate {
+
+    private static final Path TEMPLATE = Paths.get(System.getProperty("launch.template.dir", "test-output/chrome-template"));
+    private static final Path CLONE_ROOT = Paths.get(System.getProperty("launch.clone.dir",
+            Files.isDirectory(Paths.get("/dev/shm")) ? "/dev/shm" : System.getProperty("java.io.tmpdir")));
+
+    // a running Chrome's locks, they must not be in a copy or the copy looks like it's in use
+    private static final Set<String> LOCK_FILES = Set.of("SingletonLock", "SingletonSocket", "SingletonCookie", "lockfile");
+
+    // statistics
+    private static final AtomicLong clones = new AtomicLong();
+    private static final AtomicLong cloneNanos = new AtomicLong();
+    private static final AtomicLong javaCopies = new AtomicLong();
+
+    private UserDataTemplate() {
+    }
+
+    // the template is made once per JVM, by whichever session needs it first
+    private static final class Holder {
+        private static final boolean READY = prepare();
+    }
+
+    // false when there is no template and the sessions have to start on a fresh profile
+    static boolean ensureReady() {
+        return Holder.READY;
+    }
+
+    /* A new copy of the template for one browser, null when there is no template.
+     * The pool deletes the copy when it closes the browser.
+     */
+    static Path cloneForSession() {
+        if (!ensureReady()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Path clone = null;
+        try {
+            Files.createDirectories(CLONE_ROOT);
+            clone = Files.createTempDirectory(CLONE_ROOT, "chrome-session-");
+            copy(TEMPLATE, clone);
+            for (String lock : LOCK_FILES) {
+                Files.deleteIfExists(clone.resolve(lock));
+            }
+            clones.incrementAndGet();
+            return clone;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not copy the Chrome profile template, starting on a fresh profile: " + e.getMessage());
+            delete(clone);
+            return null;
+        } finally {
+            cloneNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    static void delete(Path userDataDir) {
+        if (userDataDir == null || !Files.exists(userDataDir, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(userDataDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // the rest is still deleted, a left over file in the temp directory is harmless
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not delete the browser profile copy " + userDataDir + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean prepare() {
+        if (Files.exists(TEMPLATE.resolve("Local State"))) {
+            return true;
+        }
+        long start = System.nanoTime();
+        WebDriver driver = null;
+        try {
+            Files.createDirectories(TEMPLATE);
+            DriverResolver.resolve();
+            driver = new ChromeDriver(LaunchProfile.HEADLESS.options(TEMPLATE));
+            driver.get("about:blank");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not make the Chrome profile template in " + TEMPLATE + ", starting on fresh profiles: " + e.getMessage());
+            return false;
+        } finally {
+            if (driver != null) {
+                try {
+                    driver.quit();
+                } catch (RuntimeException e) {
+                    System.err.println("Error closing the template browser: " + e.getMessage());
+                }
+            }
+        }
+        System.out.println("Made the Chrome profile template " + TEMPLATE.toAbsolutePath() + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return Files.exists(TEMPLATE.resolve("Local State"));
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        if (copyWithCp(from, to)) {
+            return;
+        }
+        javaCopies.incrementAndGet();
+        Files.walkFileTree(from, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(to.resolve(from.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (attributes.isRegularFile() && !LOCK_FILES.contains(file.getFileName().toString())) {
+                    Files.copy(file, to.resolve(from.relativize(file).toString()), StandardCopyOption.COPY_ATTRIBUTES,
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    // GNU cp, a reflink copy on btrfs or xfs and a normal copy everywhere else; false when cp isn't there or failed
+    private static boolean copyWithCp(Path from, Path to) {
+        try {
+            Process cp = new ProcessBuilder("cp", "-a", "--reflink=auto", from.toAbsolutePath() + "/.", to.toAbsolutePath().toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!cp.waitFor(60, TimeUnit.SECONDS)) {
+                cp.destroyForcibly();
+                return false;
+            }
+            return cp.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static String getStats() {
+        long count = clones.get();
+        return String.format("Profile template: %d copies (%d without cp) into %s, avg copy %.0f ms",
+                count, javaCopies.get(), CLONE_ROOT, count == 0 ? 0 : cloneNanos.get() / 1_000_000.0 / count);
+    }
+}
@@ -4,13 +4,18 @@ import org.openqa.selenium.*;
 import org.openqa.selenium.ElementClickInterceptedException;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.TimeoutException;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.Select;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.salesForceTesting.driver.CommandTimings;
+import org.salesForceTesting.server.LocalContactServer;
+import org.salesForceTesting.testUtils.WaitPolicy;
 import org.salesForceTesting.tests.BaseTestCore;
 import org.testng.Assert;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 /* This class is basically a model for the contact page; it contains:
  * all the locators for the contact form fields (including error messages)
@@ -22,10 +27,20 @@ import java.time.Duration;
 public class ContactFormPage extends BaseTestCore {
     // webdriver instance variables
     private WebDriver driver;
-    private WebDriverWait wait;
-
-    // url for Salesforce's contact page
-    private String contactPageUrl = "https://www.salesforce.com/form/contact/contactme/";
+    // every wait on the page goes through the page's wait policy (the browsers have no implicit wait)
+    private final WaitPolicy waits = PAGE_WAITS;
+    private FillStrategy fillStrategy = FillStrategy.fromSystemProperty();
+    // the fields already found in this page load, cleared on every navigation
+    private final ElementCache elements = new ElementCache(locator -> waits.present(driver, locator));
+    // picks dropdown options with one script, -Ddropdown.select=select uses Selenium's Select instead
+    private static final boolean NATIVE_SELECT = System.getProperty("dropdown.select", "indexed").equalsIgnoreCase("select");
+    private final DropdownSelector dropdowns;
+    // the country picked since the last page load or reset, tells the StateFieldWatcher what to expect
+    private String selectedCountry;
+
+    // url for Salesforce's contact page, -Dcontact.page.url can point it somewhere else ("local" for the embedded copy)
+    private static final String SALESFORCE_CONTACT_PAGE_URL = "https://www.salesforce.com/form/contact/contactme/";
+    private String contactPageUrl = resolveContactPageUrl();
 
     // Locators for the contact form fields
     private By firstNameField = By.name("UserFirstName");
@@ -40,44 +55,106 @@ public class ContactFormPage extends BaseTestCore {
     private By stateField = By.name("CompanyState");
     private By submitButton = By.name("contact me");
 
-    // All locators for the error messages
-    // Updated locators for error messages
-    private By firstNameError = By.xpath("//input[@name='UserFirstName']/following-sibling::span[@class='error-msg']");
-    private By lastNameError = By.xpath("//input[@name='UserLastName']/following-sibling::span[@class='error-msg']");
-    private By jobTitleError = By.xpath("//input[@name='UserTitle']/following-sibling::span[@class='error-msg']");
-    private By emailError = By.xpath("//input[@name='UserEmail']/following-sibling::span[@class='error-msg']");
-    private By companyError = By.xpath("//input[@name='CompanyName']/following-sibling::span[@class='error-msg']");
-    private By employeesError = By.xpath("//select[@name='CompanyEmployees']/following-sibling::span[@class='error-msg']");
-    private By phoneError = By.xpath("//input[@name='UserPhone']/following-sibling::span[@class='error-msg']");
-    private By productInterestError = By.xpath("//select[@name='Lead.Primary_Product_Interest__c']/following-sibling::span[@class='error-msg']");
-    private By countryError = By.xpath("//select[@name='CompanyCountry']/following-sibling::span[@class='error-msg']");
-    private By stateError = By.xpath("//select[@name='CompanyState']/following-sibling::span[@class='error-msg']");
+    // The error message locators live in FormField, they are all read at once through a ValidationSnapshot
 
     // Locator for the success message
     private By successMessage = By.id("thank-you-well-be-in-touch-soon");
 
+    // the cookie banner either shows up quickly or not at all
+    private static final By acceptCookiesButton = CookieConsentManager.ACCEPT_BUTTON;
+    // the default waits with a short one for the banner, the shared defaults are left alone
+    private static final WaitPolicy PAGE_WAITS = WaitPolicy.defaults().withOverride(acceptCookiesButton, Duration.ofSeconds(5));
+
+    /* Used by the BULK fill strategy, arguments[0] is a list of [tag, name, value].
+     * Inputs get their value through the native setter (so framework bound inputs notice the change),
+     * dropdowns select the option whose visible text matches, like Select.selectByVisibleText.
+     * Returns the values that could not be set so the caller can fail the same way Select would.
+     */
+    private static final String BULK_FILL_SCRIPT =
+            "var missing = [];" +
+            "function fire(el, type) { el.dispatchEvent(new Event(type, { bubbles: true })); }" +
+            "arguments[0].forEach(function (entry) {" +
+            "  var el = document.querySelector(entry[0] + '[name=\"' + entry[1] + '\"]');" +
+            "  if (!el) { missing.push(entry[1]); return; }" +
+            "  el.dispatchEvent(new FocusEvent('focus'));" +
+            "  if (entry[0] === 'select') {" +
+            "    var index = -1;" +
+            "    for (var i = 0; i < el.options.length; i++) {" +
+            "      if (el.options[i].text.replace(/\\s+/g, ' ').trim() === entry[2]) { index = i; break; }" +
+            "    }" +
+            "    if (index < 0) { missing.push(entry[1] + ': ' + entry[2]); return; }" +
+            "    el.selectedIndex = index;" +
+            "  } else {" +
+            "    Object.getOwnPropertyDescriptor(HTMLInputElement.prototype, 'value').set.call(el, entry[2]);" +
+            "  }" +
+            "  fire(el, 'input');" +
+            "  fire(el, 'change');" +
+            "  el.dispatchEvent(new FocusEvent('blur'));" +
+            "  el.dispatchEvent(new FocusEvent('focusout', { bubbles: true }));" +
+            "});" +
+            "return missing;";
+
+    /* Puts the form back to how it was when the page loaded, without reloading the page.
+     * Returns false when the form isn't there anymore (a successful submit replaces it with the thank-you message).
+     * Errors are hidden with an inline display:none (the page's stylesheet may not hide them) and emptied,
+     * the error classes the validators add are taken off,
+     * the country change event lets the page drop the dependent state field again.
+     */
+    private static final String RESET_FORM_SCRIPT =
+            "var first = document.querySelector('input[name=\"UserFirstName\"]');" +
+            "if (!first || !first.form || document.getElementById('thank-you-well-be-in-touch-soon')) { return false; }" +
+            "var form = first.form;" +
+            "form.reset();" +
+            "var country = form.querySelector('select[name=\"CompanyCountry\"]');" +
+            "if (country) { country.dispatchEvent(new Event('change', { bubbles: true })); }" +
+            "form.querySelectorAll('span.error-msg').forEach(function (span) { span.style.display = 'none'; span.textContent = ''; });" +
+            "form.querySelectorAll('.has-error, .error, .invalid').forEach(function (el) {" +
+            "  el.classList.remove('has-error', 'error', 'invalid');" +
+            "});" +
+            "form.querySelectorAll('[aria-invalid]').forEach(function (el) { el.removeAttribute('aria-invalid'); });" +
+            "form.querySelectorAll('[data-touched]').forEach(function (el) { delete el.dataset.touched; });" +
+            "return true;";
+
     // Constructor
     public ContactFormPage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(15));
+        this.dropdowns = new DropdownSelector(driver);
     }
 
-    private void handleAcceptCookies() {
-            WebDriverWait cookieTimeWait = new WebDriverWait(driver, Duration.ofSeconds(5));
-            By acceptButtonLocator = By.id("onetrust-accept-btn-handler");
+    private static String resolveContactPageUrl() {
+        String configured = System.getProperty("contact.page.url", SALESFORCE_CONTACT_PAGE_URL);
+        if (configured.equalsIgnoreCase("local")) {
+            return LocalContactServer.getInstance().getContactPageUrl();
+        }
+        return configured;
+    }
 
-            WebElement acceptButton = cookieTimeWait.until(ExpectedConditions.elementToBeClickable(acceptButtonLocator));
+    public String getContactPageUrl() {
+        return contactPageUrl;
+    }
+
+    private void handleAcceptCookies() {
+            WebElement acceptButton = waits.clickable(driver, acceptCookiesButton);
             acceptButton.click();
 
-            cookieTimeWait.until(ExpectedConditions.invisibilityOfElementLocated(acceptButtonLocator));
+            waits.absent(driver, acceptCookiesButton);
     }
 
 
         // go to the contact form page
     public void navigateToContactPage() {
+        CookieConsentManager consent = CookieConsentManager.getInstance();
+        // once the banner has been accepted the consent cookies are put back before every navigation
+        boolean seeded = consent.seedConsent(driver, contactPageUrl);
+        long navigationStart = System.nanoTime();
+        elements.invalidate();
+        dropdowns.invalidate();
+        selectedCountry = null;
         driver.get(contactPageUrl);
+        // with the eager page load strategy get() returns before the form is usable, the probe waits for the form itself
+        FormReadinessProbe.getInstance().awaitReady(driver, waits, navigationStart);
         // will call the handleAcceptCookies if the button is present
-        handleAcceptCookies();
+        consent.handleBanner(driver, seeded, this::handleAcceptCookies);
     }
         /* Setters for the contact form fields (Actions)
         * These methods check if the input is null or empty before filling in the form.
@@ -88,54 +165,60 @@ public class ContactFormPage extends BaseTestCore {
     public void setFirstName(String firstName) {
         // Check if the first name is null or empty
         if (firstName != null) {
-            WebElement element = driver.findElement(firstNameField);
-            element.clear();
-            element.sendKeys(firstName);
+            elements.use(firstNameField, element -> {
+                element.clear();
+                element.sendKeys(firstName);
+            });
         }
     }
 
     public void setLastName(String lastName) {
         // Check if the last name is null or empty
         if (lastName != null) {
-            WebElement element = driver.findElement(lastNameField);
-            element.clear();
-            element.sendKeys(lastName);
+            elements.use(lastNameField, element -> {
+                element.clear();
+                element.sendKeys(lastName);
+            });
         }
     }
 
     public void setEmail(String email) {
         // Check if the email is null or empty
         if (email != null) {
-            WebElement element = driver.findElement(emailField);
-            element.clear();
-            element.sendKeys(email);
+            elements.use(emailField, element -> {
+                element.clear();
+                element.sendKeys(email);
+            });
         }
     }
 
     public void setCompany(String company) {
         // Check if the company is null or empty
         if (company != null) {
-            WebElement element = driver.findElement(companyField);
-            element.clear();
-            element.sendKeys(company);
+            elements.use(companyField, element -> {
+                element.clear();
+                element.sendKeys(company);
+            });
         }
     }
 
     public void setPhone(String phone) {
         // Check if the phone number is null or empty
         if (phone != null) {
-            WebElement element = driver.findElement(phoneField);
-            element.clear();
-            element.sendKeys(phone);
+            elements.use(phoneField, element -> {
+                element.clear();
+                element.sendKeys(phone);
+            });
         }
     }
 
     public void setJobTitle(String jobTitle) {
         // Check if the job title is null or empty
         if (jobTitle != null) {
-            WebElement element = driver.findElement(jobTitleField);
-            element.clear();
-            element.sendKeys(jobTitle);
+            elements.use(jobTitleField, element -> {
+                element.clear();
+                element.sendKeys(jobTitle);
+            });
         }
     }
 
@@ -148,24 +231,31 @@ public class ContactFormPage extends BaseTestCore {
     public void setEmployees(String employees) {
         // Check if the employees field is null or empty
         if (employees != null) {
-            Select EmployeesDropdown = new Select(driver.findElement(employeesDropdown));
-            EmployeesDropdown.selectByVisibleText(employees);
+            elements.use(employeesDropdown, element -> selectOption(element, employeesDropdown, employees));
         }
     }
 
     public void setProductInterest(String productInterest) {
         // Check if the product interest field is null or empty
         if (productInterest != null) {
-            Select ProductInterestDropdown = new Select(driver.findElement(productInterestDropdown));
-            ProductInterestDropdown.selectByVisibleText(productInterest);
+            elements.use(productInterestDropdown, element -> selectOption(element, productInterestDropdown, productInterest));
         }
     }
 
     public void setCountry(String country) {
         // Check if the country field is null or empty
         if (country != null) {
-            Select CountryDropdown = new Select(driver.findElement(countryDropdown));
-            CountryDropdown.selectByVisibleText(country);
+            elements.use(countryDropdown, element -> selectOption(element, countryDropdown, country));
+            selectedCountry = country;
+        }
+    }
+
+    // both ways of picking an option are timed as a whole so they can be compared in the command report
+    private void selectOption(WebElement dropdown, By locator, String text) {
+        if (NATIVE_SELECT) {
+            CommandTimings.time("Select.selectByVisibleText", locator.toString(), () -> new Select(dropdown).selectByVisibleText(text));
+        } else {
+            CommandTimings.time("DropdownSelector.select", locator.toString(), () -> dropdowns.select(dropdown, locator, text));
         }
     }
 
@@ -173,10 +263,9 @@ public class ContactFormPage extends BaseTestCore {
         if (state != null && !state.isEmpty()) {
             try {
                 // Wait for the state field to be clickable
-                WebElement stateElement = wait.until(ExpectedConditions.elementToBeClickable(stateField));
+                WebElement stateElement = waits.clickable(driver, stateField);
                 // Select the state
-                Select stateDropdown = new Select(stateElement);
-                stateDropdown.selectByVisibleText(state);
+                selectOption(stateElement, stateField, state);
                 System.out.println("Selected state: " + state);
             } catch (TimeoutException e) {
                 System.err.println(
@@ -195,22 +284,89 @@ public class ContactFormPage extends BaseTestCore {
 
     }
 
+    /* Clears the values, the error messages and the state field so the next values can be typed in,
+     * this is a lot quicker than loading the page again. Falls back to a real navigation if the form is gone.
+     */
+    public void resetForm() {
+        selectedCountry = null;
+        Boolean reset = (Boolean) ((JavascriptExecutor) driver).executeScript(RESET_FORM_SCRIPT);
+        if (!Boolean.TRUE.equals(reset)) {
+            System.out.println("The form is not on the page anymore, loading the contact page again");
+            navigateToContactPage();
+        }
+    }
+
+    public FillStrategy getFillStrategy() {
+        return fillStrategy;
+    }
+
+    public void setFillStrategy(FillStrategy fillStrategy) {
+        this.fillStrategy = fillStrategy;
+    }
+
+    /* Sets several fields with one script call (the BULK fill strategy).
+     * Null values are skipped the same way the setters skip them.
+     */
+    @SuppressWarnings("unchecked")
+    public void bulkFill(Map<FormField, String> values) {
+        List<List<String>> entries = new ArrayList<>();
+        for (Map.Entry<FormField, String> value : values.entrySet()) {
+            if (value.getValue() != null) {
+                entries.add(List.of(value.getKey().getTag(), value.getKey().getName(), value.getValue()));
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        List<String> missing = (List<String>) ((JavascriptExecutor) driver).executeScript(BULK_FILL_SCRIPT, entries);
+        if (missing != null && !missing.isEmpty()) {
+            throw new NoSuchElementException("Cannot locate element or option for: " + missing);
+        }
+    }
+
     // filling out the form
     public void fillOutForm(String firstName, String lastName, String email, String company, String phone, String jobTitle, String employees, String productInterest, String country, String state) {
-        setFirstName(firstName);
-        setLastName(lastName);
-        setJobTitle(jobTitle);
-        setEmail(email);
-        setCompany(company);
-        setEmployees(employees);
-        setPhone(phone);
-        setProductInterest(productInterest);
-        setCountry(country);
+        if (fillStrategy == FillStrategy.BULK) {
+            // the state is left out, it only shows up after the country has been set
+            Map<FormField, String> values = new EnumMap<>(FormField.class);
+            values.put(FormField.FIRST_NAME, firstName);
+            values.put(FormField.LAST_NAME, lastName);
+            values.put(FormField.JOB_TITLE, jobTitle);
+            values.put(FormField.EMAIL, email);
+            values.put(FormField.COMPANY, company);
+            values.put(FormField.EMPLOYEES, employees);
+            values.put(FormField.PHONE, phone);
+            values.put(FormField.PRODUCT_INTEREST, productInterest);
+            values.put(FormField.COUNTRY, country);
+            bulkFill(values);
+            if (country != null) {
+                selectedCountry = country;
+            }
+        } else {
+            setFirstName(firstName);
+            setLastName(lastName);
+            setJobTitle(jobTitle);
+            setEmail(email);
+            setCompany(company);
+            setEmployees(employees);
+            setPhone(phone);
+            setProductInterest(productInterest);
+            setCountry(country);
+        }
 
         if (state != null && !state.isEmpty()) {
             try {
-                wait.until(ExpectedConditions.presenceOfElementLocated(stateField));
-                selectState(state);
+                // answers as soon as the field shows up, or once the form settles without it
+                if (!StateFieldWatcher.awaitStateField(driver, selectedCountry, waits.presenceTimeout(stateField))) {
+                    throw new TimeoutException("The state field is not shown for " + selectedCountry);
+                }
+                if (fillStrategy == FillStrategy.BULK) {
+                    waits.clickable(driver, stateField);
+                    bulkFill(Map.of(FormField.STATE, state));
+                } else {
+                    selectState(state);
+                }
             } catch (TimeoutException e) {
                 System.err.println(
                         "State field " + stateField + " did not show up after setting the country. " +  "Cant set state: " + state);
@@ -228,203 +384,140 @@ public class ContactFormPage extends BaseTestCore {
     // If the button is not clickable, the method will try to click the button again.
     public void submitForm() {
         try {
-            wait.until(ExpectedConditions.elementToBeClickable(submitButton)).click();
+            waits.clickable(driver, submitButton).click();
         } catch (Exception e) {
             System.err.println("Could not click submit button: " + e.getMessage());
             driver.findElement(submitButton).click();
+        } finally {
+            // a successful submit replaces the form, the next row loads or resets the page anyway
+            elements.invalidate();
         }
     }
 
+    /* Waits once, after submitForm, for whatever the submit leads to: the thank-you message or an error message.
+     * A row that expected the other outcome fails as soon as the page has answered, with what it actually showed.
+     */
+    public SubmissionOutcome awaitSubmissionOutcome() {
+        return SubmissionOutcome.await(driver, waits, "thank-you-well-be-in-touch-soon", waits.presenceTimeout(successMessage));
+    }
+
     /* Check for error messages
      * applies ot all fillable fields
      * These methods check if the error message is displayed for the corresponding field.
      * If the error message is displayed, the method will return true.
+     * Every check is answered from a ValidationSnapshot, one script call that doesn't wait on missing elements.
      */
 
-    public boolean isFirstNameErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(firstNameError);
-            return element.isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+    public ValidationSnapshot getValidationSnapshot() {
+        return ValidationSnapshot.capture(driver);
     }
 
-    public boolean isLastNameErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(lastNameError);
-            return element.isDisplayed();
+    private boolean isErrorDisplayed(FormField field) {
+        try {
+            return getValidationSnapshot().isErrorDisplayed(field);
         } catch (Exception e) {
             return false;
         }
     }
 
-    public boolean isJobTitleErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(jobTitleError);
-            return element.isDisplayed();
+    private String getErrorMessage(FormField field) {
+        try {
+            return getValidationSnapshot().getErrorMessage(field);
         } catch (Exception e) {
-            return false;
+            return null;
         }
     }
 
+    public boolean isFirstNameErrorDisplayed() {
+        return isErrorDisplayed(FormField.FIRST_NAME);
+    }
+
+    public boolean isLastNameErrorDisplayed() {
+        return isErrorDisplayed(FormField.LAST_NAME);
+    }
+
+    public boolean isJobTitleErrorDisplayed() {
+        return isErrorDisplayed(FormField.JOB_TITLE);
+    }
 
     public boolean isEmailErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(emailError);
-            return element.isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+        return isErrorDisplayed(FormField.EMAIL);
     }
 
     public boolean isCompanyErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(companyError);
-            return element.isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+        return isErrorDisplayed(FormField.COMPANY);
     }
 
     public boolean isEmployeesErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(employeesError);
-            return element.isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+        return isErrorDisplayed(FormField.EMPLOYEES);
     }
 
     public boolean isPhoneErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(phoneError);
-            return element.isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+        return isErrorDisplayed(FormField.PHONE);
     }
 
     public boolean isProductInterestErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(productInterestError);
-            return element.isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+        return isErrorDisplayed(FormField.PRODUCT_INTEREST);
     }
 
     public boolean isCountryErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(countryError);
-            return element.isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+        return isErrorDisplayed(FormField.COUNTRY);
     }
 
     public boolean isStateErrorDisplayed() {
-        try{
-            WebElement element = driver.findElement(stateError);
-            return element.isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+        return isErrorDisplayed(FormField.STATE);
     }
 
     // Get error messages (applies to all fillable fields)
     public String getFirstNameErrorMessage() {
-        try{
-            WebElement element = driver.findElement(firstNameError);
-            return element.getText();
-        } catch (Exception e) {
-            return null;
-        }
+        return getErrorMessage(FormField.FIRST_NAME);
     }
 
     public String getLastNameErrorMessage() {
-        try{
-            WebElement element = driver.findElement(lastNameError);
-            return element.getText();
-        } catch (Exception e) {
-            return null;
-        }
+        return getErrorMessage(FormField.LAST_NAME);
     }
 
     public String getJobTitleErrorMessage() {
-        try{
-            WebElement element = driver.findElement(jobTitleError);
-            return element.getText();
-        } catch (Exception e) {
-            return null;
-        }
+        return getErrorMessage(FormField.JOB_TITLE);
     }
 
     public String getEmailErrorMessage() {
-        try{
-            WebElement element = driver.findElement(emailError);
-            return element.getText();
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    public boolean isStateFieldVisible() {
-        try {
-            return driver.findElement(stateField).isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+        return getErrorMessage(FormField.EMAIL);
     }
 
     public String getCompanyErrorMessage() {
-        try{
-            WebElement element = driver.findElement(companyError);
-            return element.getText();
-        } catch (Exception e) {
-            return null;
-        }
+        return getErrorMessage(FormField.COMPANY);
     }
 
     public String getEmployeesErrorMessage() {
-        try{
-            WebElement element = driver.findElement(employeesError);
-            return element.getText();
-        } catch (Exception e) {
-            return null;
-        }
+        return getErrorMessage(FormField.EMPLOYEES);
     }
+
     public String getPhoneErrorMessage() {
-        try{
-            WebElement element = driver.findElement(phoneError);
-            return element.getText();
-        } catch (Exception e) {
-            return null;
-        }
+        return getErrorMessage(FormField.PHONE);
     }
 
     public String getProductInterestErrorMessage() {
-        try{
-            WebElement element = driver.findElement(productInterestError);
-            return element.getText();
-        } catch (Exception e) {
-            return null;
-        }
+        return getErrorMessage(FormField.PRODUCT_INTEREST);
     }
 
     public String getCountryErrorMessage() {
-        try{
-            WebElement element = driver.findElement(countryError);
-            return element.getText();
+        return getErrorMessage(FormField.COUNTRY);
+    }
+
+    // the state field shows up a moment after the country is picked, the watcher knows when it isn't coming
+    public boolean isStateFieldVisible() {
+        try {
+            return StateFieldWatcher.awaitStateField(driver, selectedCountry, waits.absenceTimeout(stateField));
         } catch (Exception e) {
-            return null;
+            return false;
         }
     }
 
     public boolean isSuccessMessageDisplayed() {
         try {
             // Wait for the success message element to be visible
-            wait.until(ExpectedConditions.visibilityOfElementLocated(successMessage));
+            waits.visible(driver, successMessage);
             return true; // Element is visible
         } catch (TimeoutException | NoSuchElementException e) {
             // Element not found or not visible within the timeout period
@@ -435,9 +528,7 @@ public class ContactFormPage extends BaseTestCore {
     public String getSuccessMessageText() {
         try {
             // Wait for the element to be visible and get its text
-            WebElement successElement = wait.until(
-                    ExpectedConditions.visibilityOfElementLocated(successMessage)
-            );
+            WebElement successElement = waits.visible(driver, successMessage);
             // Get text from the inner span for cleaner text
             WebElement innerSpan = successElement.findElement(By.tagName("span"));
             return innerSpan.getText().trim();
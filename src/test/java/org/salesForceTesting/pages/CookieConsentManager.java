@@ -0,0 +1,116 @@
+package org.salesForceTesting.pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chromium.HasCdp;
+import org.salesForceTesting.driver.PooledSession;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Accepts the OneTrust cookie banner once and then keeps the consent for every later navigation.
+ * After the first click the consent cookies are captured, before each navigation they are put back into
+ * the browser (the pool clears all cookies between tests) so the banner doesn't come up again.
+ * If the banner shows up anyway it is clicked like before.
+ *
+ * The time saved is estimated from how long the clicks took when the banner did have to be accepted.
+ */
+public class CookieConsentManager {
+
+    private static final CookieConsentManager INSTANCE = new CookieConsentManager();
+
+    static final By ACCEPT_BUTTON = By.id("onetrust-accept-btn-handler");
+
+    private volatile List<Cookie> consentCookies;
+
+    private final AtomicLong bannerClicks = new AtomicLong();
+    private final AtomicLong clickMillis = new AtomicLong();
+    private final AtomicLong skippedBanners = new AtomicLong();
+
+    public static CookieConsentManager getInstance() {
+        return INSTANCE;
+    }
+
+    /* Puts the captured consent cookies into the browser before it goes to the page.
+     * Returns false if there is nothing captured yet or the cookies couldn't be set.
+     */
+    public boolean seedConsent(WebDriver driver, String pageUrl) {
+        List<Cookie> cookies = consentCookies;
+        HasCdp cdp = PooledSession.unwrap(driver, HasCdp.class);
+        if (cookies == null || cdp == null) {
+            return false;
+        }
+        try {
+            // CDP can set cookies for a site the browser isn't on yet, WebDriver's addCookie can't
+            List<Map<String, Object>> cdpCookies = new ArrayList<>();
+            for (Cookie cookie : cookies) {
+                Map<String, Object> cdpCookie = new HashMap<>();
+                cdpCookie.put("name", cookie.getName());
+                cdpCookie.put("value", cookie.getValue());
+                cdpCookie.put("url", pageUrl);
+                cdpCookie.put("path", cookie.getPath() == null ? "/" : cookie.getPath());
+                cdpCookie.put("secure", cookie.isSecure());
+                if (cookie.getExpiry() != null) {
+                    cdpCookie.put("expires", cookie.getExpiry().getTime() / 1000);
+                }
+                cdpCookies.add(cdpCookie);
+            }
+            cdp.executeCdpCommand("Network.setCookies", Map.of("cookies", cdpCookies));
+            return true;
+        } catch (Exception e) {
+            System.err.println("Could not seed the cookie consent, the banner will be clicked: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /* Called after the page has loaded.
+     * Without seeded consent the banner is accepted the normal way (acceptBanner) and the cookies are captured.
+     * With seeded consent the banner is only clicked if it is actually on the page, there is no waiting for it.
+     */
+    public void handleBanner(WebDriver driver, boolean seeded, Runnable acceptBanner) {
+        if (seeded && !isBannerShowing(driver)) {
+            skippedBanners.incrementAndGet();
+            return;
+        }
+
+        long start = System.nanoTime();
+        acceptBanner.run();
+        clickMillis.addAndGet((System.nanoTime() - start) / 1_000_000);
+        bannerClicks.incrementAndGet();
+        captureConsent(driver);
+    }
+
+    private boolean isBannerShowing(WebDriver driver) {
+        for (WebElement button : driver.findElements(ACCEPT_BUTTON)) {
+            if (button.isDisplayed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void captureConsent(WebDriver driver) {
+        List<Cookie> cookies = new ArrayList<>();
+        for (Cookie cookie : driver.manage().getCookies()) {
+            if (cookie.getName().startsWith("Optanon") || cookie.getName().equals("eupubconsent-v2")) {
+                cookies.add(cookie);
+            }
+        }
+        if (!cookies.isEmpty()) {
+            consentCookies = cookies;
+        }
+    }
+
+
+    public String getStats() {
+        long clicks = bannerClicks.get();
+        long averageClick = clicks == 0 ? 0 : clickMillis.get() / clicks;
+        return String.format("Cookie consent: banner clicked %d times (avg %d ms), skipped %d times, about %d ms saved",
+                clicks, averageClick, skippedBanners.get(), averageClick * skippedBanners.get());
+    }
+}
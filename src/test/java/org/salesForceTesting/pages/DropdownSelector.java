@@ -0,0 +1,101 @@
+package org.salesForceTesting.pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Picks dropdown options by their visible text in one round trip.
+ * Select.selectByVisibleText looks the option up with findElements and then asks the browser about the option
+ * it found (selected? enabled?) before clicking it, that's several round trips for every pick.
+ * Here every dropdown's options are read once per page load (text -> index, one script),
+ * after that a pick is a single script that selects the option by its index and fires input and change,
+ * the same events a click gives, so the state field still shows up after the country is picked.
+ *
+ * The index is checked when the option is selected: if the text at that index isn't the expected one
+ * (the state list is built again for every country) the dropdown is read again and the pick is tried once more.
+ * Like Select, a missing option throws NoSuchElementException and a disabled one UnsupportedOperationException.
+ * ContactFormPage uses it unless -Ddropdown.select=select, which goes back to Selenium's Select.
+ */
+public class DropdownSelector {
+
+    private static final String INDEX_SCRIPT =
+            "return Array.prototype.map.call(arguments[0].options, function (option) {" +
+            "  return [option.text.replace(/\\s+/g, ' ').trim(), option.disabled];" +
+            "});";
+
+    // returns false when the option at the index isn't the one we want anymore
+    private static final String SELECT_SCRIPT =
+            "var select = arguments[0], option = select.options[arguments[1]];" +
+            "if (!option || option.text.replace(/\\s+/g, ' ').trim() !== arguments[2]) { return false; }" +
+            "if (!option.selected) {" +
+            "  option.selected = true;" +
+            "  select.dispatchEvent(new Event('input', { bubbles: true }));" +
+            "  select.dispatchEvent(new Event('change', { bubbles: true }));" +
+            "}" +
+            "return true;";
+
+    private record Option(int index, boolean disabled) {
+    }
+
+    private final JavascriptExecutor js;
+    // the options of every dropdown read in this page load, by the dropdown's locator
+    private final Map<By, Map<String, Option>> indexes = new HashMap<>();
+
+    public DropdownSelector(WebDriver driver) {
+        this.js = (JavascriptExecutor) driver;
+    }
+
+    public void select(WebElement dropdown, By locator, String text) {
+        Map<String, Option> options = indexes.get(locator);
+        boolean fresh = options == null;
+        if (fresh) {
+            options = index(dropdown, locator);
+        }
+        while (true) {
+            Option option = options.get(text);
+            if (option == null && !fresh) {
+                // the list may have been rebuilt since it was read
+                options = index(dropdown, locator);
+                fresh = true;
+                continue;
+            }
+            if (option == null) {
+                throw new NoSuchElementException("Cannot locate option with text: " + text);
+            }
+            if (option.disabled()) {
+                throw new UnsupportedOperationException("You may not select a disabled option");
+            }
+            if (Boolean.TRUE.equals(js.executeScript(SELECT_SCRIPT, dropdown, option.index(), text))) {
+                return;
+            }
+            if (fresh) {
+                throw new NoSuchElementException("The options of " + locator + " changed while selecting: " + text);
+            }
+            options = index(dropdown, locator);
+            fresh = true;
+        }
+    }
+
+    // a new page load, the dropdowns have to be read again
+    public void invalidate() {
+        indexes.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Option> index(WebElement dropdown, By locator) {
+        List<List<Object>> read = (List<List<Object>>) js.executeScript(INDEX_SCRIPT, dropdown);
+        Map<String, Option> options = new HashMap<>();
+        for (int i = 0; i < read.size(); i++) {
+            // the first option with the text wins, the same one Select would pick
+            options.putIfAbsent((String) read.get(i).get(0), new Option(i, Boolean.TRUE.equals(read.get(i).get(1))));
+        }
+        indexes.put(locator, options);
+        return options;
+    }
+}
@@ -0,0 +1,87 @@
+package org.salesForceTesting.pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/* The elements a ContactFormPage has already found in the current page load, keyed by their locator.
+ * Without it every setter does a findElement round trip for an element it found a moment ago
+ * (fillOutForm and then resetForm and fillOutForm again on the same page).
+ *
+ * The page clears the cache when it navigates (and when a submit can take it to another page).
+ * If the page changed some other way the cached element is stale: use() then drops it,
+ * finds the element again and runs the action one more time, the caller never sees the stale reference.
+ *
+ * One cache per page object, so one per thread. The counters are shared over all pages:
+ *  hits   - lookups answered from the cache, each one a saved round trip
+ *  misses - lookups that had to find the element
+ *  stale  - cached elements that were gone from the page and had to be found again
+ */
+public class ElementCache {
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong stale = new AtomicLong();
+
+    private final Map<By, WebElement> elements = new HashMap<>();
+    // how an element is found when it isn't cached, the page waits for it to be present
+    private final Function<By, WebElement> finder;
+
+    ElementCache(Function<By, WebElement> finder) {
+        this.finder = finder;
+    }
+
+    WebElement get(By locator) {
+        WebElement element = elements.get(locator);
+        if (element != null) {
+            hits.incrementAndGet();
+            return element;
+        }
+        misses.incrementAndGet();
+        element = finder.apply(locator);
+        elements.put(locator, element);
+        return element;
+    }
+
+    // runs the action on the element, when the cached element turned stale it is found again and the action repeated
+    void use(By locator, Consumer<WebElement> action) {
+        boolean cached = elements.containsKey(locator);
+        try {
+            action.accept(get(locator));
+        } catch (StaleElementReferenceException e) {
+            elements.remove(locator);
+            if (!cached) {
+                // it went stale straight after it was found, finding it again won't help
+                throw e;
+            }
+            stale.incrementAndGet();
+            action.accept(get(locator));
+        }
+    }
+
+    // the page is about to change, nothing found so far can be used anymore
+    void invalidate() {
+        elements.clear();
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static String getStats() {
+        long total = hits.get() + misses.get();
+        double hitRatio = total == 0 ? 0 : (hits.get() * 100.0) / total;
+        return String.format("Element cache: lookups=%d, hits=%d, misses=%d (hit ratio %.1f%%), stale re-finds=%d",
+                total, hits.get(), misses.get(), hitRatio, stale.get());
+    }
+}
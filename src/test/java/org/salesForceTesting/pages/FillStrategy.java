@@ -0,0 +1,22 @@
+package org.salesForceTesting.pages;
+
+/* How ContactFormPage.fillOutForm puts the values into the form.
+ *  KEYSTROKE - every field is cleared and typed into (or picked with Select), the same as a user would do it
+ *  BULK      - all inputs and dropdowns are set by one injected script which then fires the
+ *              input/change/blur events the page's validators listen for.
+ *              Much fewer round trips, good for rows that only check validation messages.
+ *
+ * The default is picked with -Dform.fill.strategy=KEYSTROKE|BULK
+ */
+public enum FillStrategy {
+    KEYSTROKE,
+    BULK;
+
+    public static FillStrategy fromSystemProperty() {
+        String configured = System.getProperty("form.fill.strategy");
+        if (configured == null || configured.isBlank()) {
+            return KEYSTROKE;
+        }
+        return valueOf(configured.trim().toUpperCase());
+    }
+}
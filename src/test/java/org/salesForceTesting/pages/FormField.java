@@ -0,0 +1,38 @@
+package org.salesForceTesting.pages;
+
+/* The fillable fields of the contact form.
+ * Each field knows its element tag and name attribute, the error message for a field
+ * is the span with class error-msg that follows it.
+ */
+public enum FormField {
+    FIRST_NAME("input", "UserFirstName"),
+    LAST_NAME("input", "UserLastName"),
+    JOB_TITLE("input", "UserTitle"),
+    EMAIL("input", "UserEmail"),
+    COMPANY("input", "CompanyName"),
+    EMPLOYEES("select", "CompanyEmployees"),
+    PHONE("input", "UserPhone"),
+    PRODUCT_INTEREST("select", "Lead.Primary_Product_Interest__c"),
+    COUNTRY("select", "CompanyCountry"),
+    STATE("select", "CompanyState");
+
+    private final String tag;
+    private final String name;
+
+    FormField(String tag, String name) {
+        this.tag = tag;
+        this.name = name;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getErrorXPath() {
+        return "//" + tag + "[@name='" + name + "']/following-sibling::span[@class='error-msg']";
+    }
+}
@@ -0,0 +1,225 @@
+package org.salesForceTesting.pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.salesForceTesting.driver.PooledSession;
+import org.salesForceTesting.testUtils.WaitPolicy;
+import org.testng.Reporter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Tells when the contact form can be used, without waiting for the whole page to load.
+ * With the eager page load strategy driver.get() comes back as soon as the HTML is parsed, the probe then
+ * polls (one script per poll) until:
+ *  - every field locator and the submit button is in the page
+ *    (CompanyState is only added once a country that has states is picked, so it isn't required)
+ *  - the validation scripts are bound: the form has data-validation="bound" (the replica sets it), or,
+ *    for pages without that marker (the real page), the validators' own handlers are there, read through CDP:
+ *    a submit/blur/change/input listener on the form or any field in it, or on document or window for
+ *    validators that delegate (jQuery and the frameworks do)
+ * The marker check can be replaced with -Dform.ready.script=<js expression on `form`>.
+ * When neither shows up the probe ends with the page load: once the document has been complete for
+ * form.ready.grace.ms (default 500, time for load handlers to bind) the form counts as ready, a warning is printed
+ * the first time and it is counted in the stats. -Dform.ready.fallback=false turns that off, the wait then times out.
+ *
+ * The time from driver.get() to ready is recorded for every navigation. When the test is done the page's own
+ * load time is read from the navigation timing, the difference is load time the test didn't wait for.
+ */
+public class FormReadinessProbe {
+
+    private static final String DEFAULT_BOUND_CHECK = "form.getAttribute('data-validation') === 'bound'";
+
+    private static final String READY_SCRIPT =
+            "var names = arguments[0];" +
+            "if (document.readyState === 'loading') { return 'document still loading'; }" +
+            "for (var i = 0; i < names.length; i++) {" +
+            "  if (!document.getElementsByName(names[i]).length) { return 'missing ' + names[i]; }" +
+            "}" +
+            "var form = document.getElementsByName(names[0])[0].form;" +
+            "if (!form) { return 'fields are not in a form'; }" +
+            "return (%s) ? null : { loaded: document.readyState === 'complete' };";
+
+    // what the CDP listener check evaluates: the form with everything in it, then the delegation targets
+    private static final String FORM_EXPRESSION = "document.getElementsByName(%s)[0].form";
+    private static final List<String> DELEGATE_EXPRESSIONS = List.of("document", "window");
+    private static final Set<String> VALIDATION_EVENTS = Set.of("submit", "blur", "focusout", "change", "input", "invalid", "keyup");
+    private static final String OBJECT_GROUP = "form-readiness";
+
+    private static final boolean LOAD_FALLBACK = Boolean.parseBoolean(System.getProperty("form.ready.fallback", "true"));
+    private static final long FALLBACK_GRACE_MILLIS = Long.getLong("form.ready.grace.ms", 500);
+
+    private static final String LOAD_TIME_SCRIPT =
+            "var nav = performance.getEntriesByType('navigation')[0];" +
+            "return nav && nav.loadEventEnd > 0 ? Math.round(nav.loadEventEnd) : -1;";
+
+    private static final By SUBMIT_BUTTON = By.name("contact me");
+
+    private static final FormReadinessProbe INSTANCE = new FormReadinessProbe(
+            System.getProperty("form.ready.script", DEFAULT_BOUND_CHECK));
+
+    // what the last navigation on this thread measured, reported when the test finishes
+    private static final ThreadLocal<Long> LAST_READY_MILLIS = new ThreadLocal<>();
+
+    private final String readyScript;
+    private final List<String> requiredNames = new ArrayList<>();
+
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong readyMillis = new AtomicLong();
+    private final AtomicLong comparedLoads = new AtomicLong();
+    private final AtomicLong notWaitedMillis = new AtomicLong();
+    private final AtomicLong listenerReady = new AtomicLong();
+    private final AtomicLong fallbackReady = new AtomicLong();
+    private final AtomicBoolean fallbackWarned = new AtomicBoolean();
+
+    private FormReadinessProbe(String boundCheck) {
+        this.readyScript = String.format(READY_SCRIPT, boundCheck);
+        for (FormField field : FormField.values()) {
+            if (field != FormField.STATE) {
+                requiredNames.add(field.getName());
+            }
+        }
+        requiredNames.add("contact me");
+    }
+
+    public static FormReadinessProbe getInstance() {
+        return INSTANCE;
+    }
+
+    /* Waits until the form is ready, navigationStart is System.nanoTime() taken just before driver.get().
+     * Returns the milliseconds from the navigation to ready.
+     */
+    public long awaitReady(WebDriver driver, WaitPolicy waits, long navigationStart) {
+        Duration timeout = waits.presenceTimeout(SUBMIT_BUTTON);
+        HasCdp cdp = PooledSession.unwrap(driver, HasCdp.class);
+        long[] loadedSince = {0};
+        waits.until(driver, "contact form ready", timeout, d -> {
+            Object notReady = ((JavascriptExecutor) d).executeScript(readyScript, requiredNames);
+            if (notReady == null) {
+                return Boolean.TRUE;
+            }
+            if (!(notReady instanceof Map)) {
+                return null;
+            }
+            // every field is there but there's no marker, look for the validators' handlers
+            if (cdp != null && hasValidationListeners(cdp)) {
+                listenerReady.incrementAndGet();
+                return Boolean.TRUE;
+            }
+            if (!LOAD_FALLBACK || !Boolean.TRUE.equals(((Map<?, ?>) notReady).get("loaded"))) {
+                return null;
+            }
+            if (loadedSince[0] == 0) {
+                loadedSince[0] = System.nanoTime();
+            }
+            if (System.nanoTime() - loadedSince[0] < FALLBACK_GRACE_MILLIS * 1_000_000) {
+                return null;
+            }
+            fallbackReady.incrementAndGet();
+            if (fallbackWarned.compareAndSet(false, true)) {
+                System.err.println("WARNING: the contact form has no validation marker and no validation handlers could be found "
+                        + "on the form, document or window, treating the finished page load as ready. These ready times include the whole page load.");
+            }
+            return Boolean.TRUE;
+        });
+        long elapsed = (System.nanoTime() - navigationStart) / 1_000_000;
+        probes.incrementAndGet();
+        readyMillis.addAndGet(elapsed);
+        LAST_READY_MILLIS.set(elapsed);
+        return elapsed;
+    }
+
+    private boolean hasValidationListeners(HasCdp cdp) {
+        try {
+            // the whole form (depth -1), document and window only themselves, not every element on the page
+            if (hasValidationEvent(listenerTypes(cdp, String.format(FORM_EXPRESSION, "'" + requiredNames.get(0) + "'"), -1))) {
+                return true;
+            }
+            for (String expression : DELEGATE_EXPRESSIONS) {
+                if (hasValidationEvent(listenerTypes(cdp, expression, 1))) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (RuntimeException e) {
+            // the page navigated between the script and the CDP calls, the next poll tries again
+            return false;
+        } finally {
+            try {
+                cdp.executeCdpCommand("Runtime.releaseObjectGroup", Map.of("objectGroup", OBJECT_GROUP));
+            } catch (RuntimeException e) {
+                // nothing left to release
+            }
+        }
+    }
+
+    private static boolean hasValidationEvent(List<String> types) {
+        for (String type : types) {
+            if (VALIDATION_EVENTS.contains(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the event types with a listener on what the expression evaluates to, and on its children down to depth (-1 for all)
+    private static List<String> listenerTypes(HasCdp cdp, String expression, int depth) {
+        Map<String, Object> evaluated = cdp.executeCdpCommand("Runtime.evaluate",
+                Map.of("expression", expression, "objectGroup", OBJECT_GROUP));
+        Object objectId = evaluated.get("result") instanceof Map<?, ?> result ? result.get("objectId") : null;
+        List<String> types = new ArrayList<>();
+        if (objectId == null) {
+            return types;
+        }
+        Map<String, Object> found = cdp.executeCdpCommand("DOMDebugger.getEventListeners", Map.of("objectId", objectId, "depth", depth));
+        if (found.get("listeners") instanceof List<?> listeners) {
+            for (Object listener : listeners) {
+                if (listener instanceof Map<?, ?> map) {
+                    types.add(String.valueOf(map.get("type")));
+                }
+            }
+        }
+        return types;
+    }
+
+
+    /* Called when the test is over: logs navigation-to-ready for the test and compares it with
+     * the full page load, which has usually finished by now.
+     */
+    public void reportTest(WebDriver driver) {
+        Long ready = LAST_READY_MILLIS.get();
+        LAST_READY_MILLIS.remove();
+        if (ready == null) {
+            return;
+        }
+        long load = -1;
+        try {
+            load = ((Number) ((JavascriptExecutor) driver).executeScript(LOAD_TIME_SCRIPT)).longValue();
+        } catch (Exception e) {
+            // the page is gone or the script failed, only the ready time is logged
+        }
+        if (load >= 0) {
+            comparedLoads.incrementAndGet();
+            notWaitedMillis.addAndGet(Math.max(0, load - ready));
+            Reporter.log("Form ready after " + ready + " ms, full page load " + load + " ms<br>");
+        } else {
+            Reporter.log("Form ready after " + ready + " ms<br>");
+        }
+    }
+
+    public String getStats() {
+        long count = probes.get();
+        long compared = comparedLoads.get();
+        return String.format("Form readiness: %d navigations (%d by validation handlers, %d by page load fallback), avg %d ms to ready, "
+                        + "avg %d ms of page load not waited for (%d compared)",
+                count, listenerReady.get(), fallbackReady.get(), count == 0 ? 0 : readyMillis.get() / count,
+                compared == 0 ? 0 : notWaitedMillis.get() / compared, compared);
+    }
+}
@@ -0,0 +1,145 @@
+package org.salesForceTesting.pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.salesForceTesting.driver.CommandTimings;
+import org.salesForceTesting.testUtils.WaitPolicy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Waits for the state field that the page adds after a country is picked, without polling.
+ * One async script puts a MutationObserver on the form and answers as soon as:
+ *  - the state field is in the page and rendered (it's there)
+ *  - the form hasn't changed for state.settle.ms (default 1000) (it isn't coming for this country)
+ * Polling for the field instead used the whole presence timeout for every country without states.
+ *
+ * Which countries show a state field is remembered for the rest of the run.
+ * One quiet settle window can just be a slow page, so a country is only marked as having no state field after
+ * state.absent.confirmations (default 3) watches in a row ended without it. From then on a row still gets a short
+ * watch (state.recheck.ms, default 300) instead of the full one, and if the field does show up the country is
+ * marked as having one again.
+ * A country that showed a state field before is never marked as having none. If the form settles without it
+ * the page is just slow this time, so the watcher falls back to the normal presence wait.
+ */
+public class StateFieldWatcher {
+
+    private static final String STATE_FIELD_NAME = "CompanyState";
+    private static final By STATE_FIELD = By.name(STATE_FIELD_NAME);
+
+    private static final String WATCH_SCRIPT =
+            "var name = arguments[0], settle = arguments[1], timeout = arguments[2], done = arguments[arguments.length - 1];" +
+            "function shown() {" +
+            "  var el = document.getElementsByName(name)[0];" +
+            "  return !!el && el.getClientRects().length > 0;" +
+            "}" +
+            "if (shown()) { done(true); return; }" +
+            "var country = document.getElementsByName('CompanyCountry')[0];" +
+            "var root = (country && country.form) || document.body;" +
+            "var finished = false, quiet, limit;" +
+            "var observer = new MutationObserver(function () {" +
+            "  if (shown()) { finish(true); return; }" +
+            "  clearTimeout(quiet);" +
+            "  quiet = setTimeout(function () { finish(false); }, settle);" +
+            "});" +
+            "function finish(result) {" +
+            "  if (finished) { return; }" +
+            "  finished = true;" +
+            "  observer.disconnect();" +
+            "  clearTimeout(quiet);" +
+            "  clearTimeout(limit);" +
+            "  done(result);" +
+            "}" +
+            "observer.observe(root, { childList: true, subtree: true, attributes: true, attributeFilter: ['style', 'class', 'hidden'] });" +
+            "quiet = setTimeout(function () { finish(false); }, settle);" +
+            "limit = setTimeout(function () { finish(false); }, timeout);";
+
+    private static final long SETTLE_MILLIS = Long.getLong("state.settle.ms", 1000);
+    private static final long RECHECK_MILLIS = Long.getLong("state.recheck.ms", 300);
+    private static final int ABSENT_CONFIRMATIONS = Integer.getInteger("state.absent.confirmations", 3);
+
+    // country -> does it show a state field, learned over the run
+    private static final Map<String, Boolean> COUNTRY_HAS_STATE = new ConcurrentHashMap<>();
+    // country -> watches in a row that ended without the state field, before it is learned as false
+    private static final Map<String, Integer> ABSENT_OBSERVATIONS = new ConcurrentHashMap<>();
+
+    // statistics
+    private static final AtomicLong appeared = new AtomicLong();
+    private static final AtomicLong settledAbsent = new AtomicLong();
+    private static final AtomicLong rechecked = new AtomicLong();
+    private static final AtomicLong relearned = new AtomicLong();
+    private static final AtomicLong fallbacks = new AtomicLong();
+
+    private StateFieldWatcher() {
+    }
+
+    /* True once the state field is showing, false when it isn't coming for this country.
+     * The country is the one just picked (null when not known, then nothing is learned or skipped),
+     * timeout is the longest the field gets to show up while the form keeps changing.
+     */
+    public static boolean awaitStateField(WebDriver driver, String country, Duration timeout) {
+        Boolean known = country == null ? null : COUNTRY_HAS_STATE.get(country);
+        if (Boolean.FALSE.equals(known)) {
+            // learned as having none, a short watch in case that was wrong
+            rechecked.incrementAndGet();
+            if (!watch(driver, country, RECHECK_MILLIS, RECHECK_MILLIS)) {
+                return false;
+            }
+            relearned.incrementAndGet();
+            appeared.incrementAndGet();
+            ABSENT_OBSERVATIONS.remove(country);
+            COUNTRY_HAS_STATE.put(country, true);
+            return true;
+        }
+
+        if (watch(driver, country, SETTLE_MILLIS, timeout.toMillis())) {
+            appeared.incrementAndGet();
+            if (country != null) {
+                ABSENT_OBSERVATIONS.remove(country);
+                COUNTRY_HAS_STATE.put(country, true);
+            }
+            return true;
+        }
+        if (Boolean.TRUE.equals(known)) {
+            // this country had a state field before, give the slow page the normal wait
+            fallbacks.incrementAndGet();
+            try {
+                WaitPolicy.defaults().present(driver, STATE_FIELD);
+                return true;
+            } catch (TimeoutException e) {
+                return false;
+            }
+        }
+        settledAbsent.incrementAndGet();
+        if (country != null && ABSENT_OBSERVATIONS.merge(country, 1, Integer::sum) >= ABSENT_CONFIRMATIONS) {
+            COUNTRY_HAS_STATE.putIfAbsent(country, false);
+        }
+        return false;
+    }
+
+    // one run of the watch script, true when the state field showed up
+    private static boolean watch(WebDriver driver, String country, long settleMillis, long timeoutMillis) {
+        long start = System.nanoTime();
+        boolean shown;
+        try {
+            Object result = ((JavascriptExecutor) driver).executeAsyncScript(WATCH_SCRIPT,
+                    STATE_FIELD_NAME, settleMillis, timeoutMillis);
+            shown = Boolean.TRUE.equals(result);
+        } catch (ScriptTimeoutException e) {
+            shown = false;
+        }
+        CommandTimings.record(shown ? "state field appeared" : "state field absent", String.valueOf(country), System.nanoTime() - start);
+        return shown;
+    }
+
+    public static String getStats() {
+        return String.format("State field watcher: appeared=%d, absent=%d, short rechecks (learned no state)=%d, "
+                        + "wrongly learned as no state=%d, slow page fallbacks=%d, countries learned=%s",
+                appeared.get(), settledAbsent.get(), rechecked.get(), relearned.get(), fallbacks.get(), COUNTRY_HAS_STATE);
+    }
+}
@@ -0,0 +1,109 @@
+package org.salesForceTesting.pages;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.salesForceTesting.testUtils.WaitPolicy;
+
+import java.time.Duration;
+import java.util.Map;
+
+/* What the page showed after the form was submitted, and how long it took to show it.
+ * Checking one expected outcome at a time meant a row that was wrong about the outcome waited the whole
+ * success message timeout before it failed. Here one wait (one script per poll) races the two things
+ * a submit can lead to, the thank-you message and any error message becoming visible, and stops at the first.
+ *  SUCCESS          - the thank-you message is showing, getSuccessText() has its text
+ *  VALIDATION_ERROR - at least one error message is showing, getErrors() is a snapshot of all of them
+ *  NOTHING          - neither showed up within the success message's presence timeout
+ */
+public final class SubmissionOutcome {
+
+    public enum Kind {
+        SUCCESS,
+        VALIDATION_ERROR,
+        NOTHING
+    }
+
+    // the thank-you text comes from its inner span, like getSuccessMessageText()
+    private static final String RACE_SCRIPT =
+            ValidationSnapshot.VISIBLE_FUNCTION +
+            "var thanks = document.getElementById(arguments[0]);" +
+            "if (thanks && visible(thanks)) {" +
+            "  var span = thanks.querySelector('span');" +
+            "  return { success: (span || thanks).innerText.trim() };" +
+            "}" +
+            "var errors = document.querySelectorAll('span.error-msg');" +
+            "for (var i = 0; i < errors.length; i++) {" +
+            "  if (visible(errors[i])) { return { errors: true }; }" +
+            "}" +
+            "return null;";
+
+    private final Kind kind;
+    private final String successText;
+    private final ValidationSnapshot errors;
+    private final long settleMillis;
+
+    private SubmissionOutcome(Kind kind, String successText, ValidationSnapshot errors, long settleMillis) {
+        this.kind = kind;
+        this.successText = successText;
+        this.errors = errors;
+        this.settleMillis = settleMillis;
+    }
+
+    @SuppressWarnings("unchecked")
+    static SubmissionOutcome await(WebDriver driver, WaitPolicy waits, String successId, Duration timeout) {
+        long start = System.nanoTime();
+        Map<String, Object> first;
+        try {
+            first = waits.until(driver, "submission outcome", timeout,
+                    d -> (Map<String, Object>) ((JavascriptExecutor) d).executeScript(RACE_SCRIPT, successId));
+        } catch (TimeoutException e) {
+            return new SubmissionOutcome(Kind.NOTHING, null, null, (System.nanoTime() - start) / 1_000_000);
+        }
+        long settled = (System.nanoTime() - start) / 1_000_000;
+        if (first.containsKey("success")) {
+            return new SubmissionOutcome(Kind.SUCCESS, (String) first.get("success"), null, settled);
+        }
+        return new SubmissionOutcome(Kind.VALIDATION_ERROR, null, ValidationSnapshot.capture(driver), settled);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isSuccess() {
+        return kind == Kind.SUCCESS;
+    }
+
+    // null unless the outcome is SUCCESS
+    public String getSuccessText() {
+        return successText;
+    }
+
+    // null unless the outcome is VALIDATION_ERROR
+    public ValidationSnapshot getErrors() {
+        return errors;
+    }
+
+    public boolean isErrorDisplayed(FormField field) {
+        return errors != null && errors.isErrorDisplayed(field);
+    }
+
+    public String getErrorMessage(FormField field) {
+        return errors == null ? null : errors.getErrorMessage(field);
+    }
+
+    // from the end of the submit to the outcome showing (or the timeout)
+    public long getSettleMillis() {
+        return settleMillis;
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case SUCCESS -> "SUCCESS '" + successText + "' after " + settleMillis + " ms";
+            case VALIDATION_ERROR -> "VALIDATION_ERROR " + errors.describeErrors() + " after " + settleMillis + " ms";
+            case NOTHING -> "nothing shown after " + settleMillis + " ms";
+        };
+    }
+}
@@ -0,0 +1,141 @@
+package org.salesForceTesting.pages;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* The state of every field's error message, collected with a single script call.
+ * Looking the error spans up one at a time costs a round trip each (and the full implicit wait
+ * for every error that isn't there), the snapshot gets all of them at once and never waits.
+ * Visibility follows the same rules as WebElement.isDisplayed(): not display:none anywhere up the tree,
+ * not visibility:hidden, not fully transparent and with a size.
+ */
+public class ValidationSnapshot {
+
+    // also used by SubmissionOutcome, so "displayed" means the same thing there
+    static final String VISIBLE_FUNCTION =
+            "function visible(el) {" +
+            "  if (!el.isConnected) { return false; }" +
+            "  var style = window.getComputedStyle(el);" +
+            "  if (style.visibility === 'hidden' || style.visibility === 'collapse') { return false; }" +
+            "  for (var e = el; e; e = e.parentElement) {" +
+            "    var s = window.getComputedStyle(e);" +
+            "    if (s.display === 'none' || parseFloat(s.opacity) === 0) { return false; }" +
+            "  }" +
+            "  var rect = el.getBoundingClientRect();" +
+            "  return rect.width > 0 && rect.height > 0;" +
+            "}";
+
+    private static final String SNAPSHOT_SCRIPT =
+            "var xpaths = arguments[0];" +
+            VISIBLE_FUNCTION +
+            "return xpaths.map(function (xpath) {" +
+            "  var el = document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;" +
+            "  if (!el) { return null; }" +
+            "  var shown = visible(el);" +
+            "  return { displayed: shown, text: shown ? el.innerText.trim() : '' };" +
+            "});";
+
+    private final Map<FormField, String> presentErrors;
+    private final Set<FormField> displayedErrors;
+    private final long captureMillis;
+
+    private ValidationSnapshot(Map<FormField, String> presentErrors, Set<FormField> displayedErrors, long captureMillis) {
+        this.presentErrors = presentErrors;
+        this.displayedErrors = displayedErrors;
+        this.captureMillis = captureMillis;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static ValidationSnapshot capture(WebDriver driver) {
+        long start = System.nanoTime();
+        FormField[] fields = FormField.values();
+        List<String> xpaths = new ArrayList<>();
+        for (FormField field : fields) {
+            xpaths.add(field.getErrorXPath());
+        }
+
+        List<Object> result = (List<Object>) ((JavascriptExecutor) driver).executeScript(SNAPSHOT_SCRIPT, xpaths);
+
+        Map<FormField, String> present = new EnumMap<>(FormField.class);
+        Set<FormField> displayed = EnumSet.noneOf(FormField.class);
+        for (int i = 0; i < fields.length; i++) {
+            Map<String, Object> error = (Map<String, Object>) result.get(i);
+            if (error == null) {
+                continue;
+            }
+            present.put(fields[i], (String) error.get("text"));
+            if (Boolean.TRUE.equals(error.get("displayed"))) {
+                displayed.add(fields[i]);
+            }
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        return new ValidationSnapshot(present, displayed, elapsed);
+    }
+
+    public boolean isErrorDisplayed(FormField field) {
+        return displayedErrors.contains(field);
+    }
+
+    // null when the field has no error span at all, empty when the span is there but hidden
+    public String getErrorMessage(FormField field) {
+        return presentErrors.get(field);
+    }
+
+    public Set<FormField> getDisplayedErrors() {
+        return Collections.unmodifiableSet(displayedErrors);
+    }
+
+    public boolean hasErrors() {
+        return !displayedErrors.isEmpty();
+    }
+
+    // the displayed errors and their messages, without the timing, so outcomes of two runs can be compared
+    public String describeErrors() {
+        if (displayedErrors.isEmpty()) {
+            return "no errors";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (FormField field : displayedErrors) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(field).append("='").append(presentErrors.get(field)).append("'");
+        }
+        return builder.toString();
+    }
+
+    public long getCaptureMillis() {
+        return captureMillis;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ValidationSnapshot)) {
+            return false;
+        }
+        ValidationSnapshot snapshot = (ValidationSnapshot) other;
+        return presentErrors.equals(snapshot.presentErrors) && displayedErrors.equals(snapshot.displayedErrors);
+    }
+
+    @Override
+    public int hashCode() {
+        return presentErrors.hashCode() * 31 + displayedErrors.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ValidationSnapshot{");
+        for (FormField field : displayedErrors) {
+            builder.append(field).append("='").append(presentErrors.get(field)).append("' ");
+        }
+        return builder.append("captured in ").append(captureMillis).append(" ms}").toString();
+    }
+}
@@ -0,0 +1,161 @@
+package org.salesForceTesting.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* An HTTP server inside the test JVM that serves a copy of the Salesforce contact page
+ * (src/test/resources/contact-form/contactme.html) so the tests can run without the network.
+ * It can add latency to every response to make the page behave like a slow or unsteady site.
+ *
+ * The tests use it when the page url is set to "local": -Dcontact.page.url=local
+ *
+ * Settings (system properties):
+ *  server.port        - port to listen on (default 0, any free port)
+ *  server.latency.ms  - delay added to every response (default 0)
+ *  server.jitter.ms   - random extra delay between 0 and this value (default 0)
+ */
+public final class LocalContactServer {
+
+    public static final String CONTACT_PAGE_PATH = "/form/contact/contactme/";
+    private static final String PAGE_RESOURCE = "/contact-form/contactme.html";
+
+    private static final ReentrantLock INSTANCE_LOCK = new ReentrantLock();
+    private static LocalContactServer instance;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] contactPage;
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private final AtomicLong requests = new AtomicLong();
+
+    public LocalContactServer(int port, long latencyMillis, long jitterMillis) throws IOException {
+        this.contactPage = readPage();
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "local-contact-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        System.out.println("Local contact page running at " + getContactPageUrl());
+    }
+
+    // the shared server, started on first use and stopped by stopShared() at the end of the suite
+    public static LocalContactServer getInstance() {
+        INSTANCE_LOCK.lock();
+        try {
+            if (instance == null) {
+                try {
+                    instance = new LocalContactServer(
+                            Integer.getInteger("server.port", 0),
+                            Long.getLong("server.latency.ms", 0),
+                            Long.getLong("server.jitter.ms", 0));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not start the local contact page server", e);
+                }
+            }
+            return instance;
+        } finally {
+            INSTANCE_LOCK.unlock();
+        }
+    }
+
+    // the HTTP dispatcher thread is not a daemon, so the shared server has to be stopped for the JVM to exit
+    public static void stopShared() {
+        INSTANCE_LOCK.lock();
+        try {
+            if (instance != null) {
+                System.out.println("Local contact page served " + instance.getRequestCount() + " requests");
+                instance.stop();
+                instance = null;
+            }
+        } finally {
+            INSTANCE_LOCK.unlock();
+        }
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public String getContactPageUrl() {
+        return getBaseUrl() + CONTACT_PAGE_PATH;
+    }
+
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            delay();
+            String path = exchange.getRequestURI().getPath();
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+            } else if (path.equals(CONTACT_PAGE_PATH) || path.equals(CONTACT_PAGE_PATH.substring(0, CONTACT_PAGE_PATH.length() - 1))) {
+                exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+                exchange.getResponseHeaders().set("Cache-Control", "no-store");
+                if (exchange.getRequestMethod().equals("HEAD")) {
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, contactPage.length);
+                    try (OutputStream body = exchange.getResponseBody()) {
+                        body.write(contactPage);
+                    }
+                }
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        }
+    }
+
+    private void delay() {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] readPage() throws IOException {
+        try (InputStream page = LocalContactServer.class.getResourceAsStream(PAGE_RESOURCE)) {
+            if (page == null) {
+                throw new IOException("Missing test resource " + PAGE_RESOURCE);
+            }
+            return page.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.salesForceTesting.testUtils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.salesForceTesting.driver.PooledSession;
+import org.salesForceTesting.driver.SessionRecorder;
+import org.salesForceTesting.pages.ValidationSnapshot;
+import org.testng.ITestResult;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* Everything we need to diagnose a failed row without running it again, collected on the test thread
+ * while the browser is still on the failed page (only what is cheap to read: two scripts and the recorder's lists):
+ *  failure.txt    - the test, its parameters and the stack trace
+ *  form.html      - the contact form as it is in the page (or the whole page when there is no form)
+ *  validation.txt - which field errors are displayed, the same snapshot the tests use
+ *  console.log    - console output and uncaught errors since the test started
+ *  network.json   - the requests of the last navigation with status, size and timings
+ * The ScreenshotWriter zips it in the background.
+ */
+public final class FailureBundle {
+
+    private static final String FORM_HTML_SCRIPT =
+            "var field = document.getElementsByName('UserFirstName')[0];" +
+            "return (field && field.form ? field.form : document.documentElement).outerHTML;";
+
+    private FailureBundle() {
+    }
+
+    public static Map<String, String> collect(ITestResult result, PooledSession session) {
+        String test = result.getTestClass().getName() + "." + result.getMethod().getMethodName();
+        return collect(describeFailure(test, result.getParameters(), result.getEndMillis() - result.getStartMillis(),
+                result.getThrowable()), session);
+    }
+
+    // for failures that happen outside a TestNG test method, like the rows run by the RowScheduler
+    public static Map<String, String> collect(String failure, PooledSession session) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("failure.txt", failure);
+
+        WebDriver driver = session.getDriver();
+        try {
+            entries.put("form.html", (String) ((JavascriptExecutor) driver).executeScript(FORM_HTML_SCRIPT));
+        } catch (Exception e) {
+            entries.put("form.html", "<!-- could not read the page: " + e.getMessage() + " -->");
+        }
+        try {
+            ValidationSnapshot snapshot = ValidationSnapshot.capture(driver);
+            entries.put("validation.txt", snapshot.describeErrors() + System.lineSeparator() + snapshot);
+        } catch (Exception e) {
+            entries.put("validation.txt", "could not capture the validation state: " + e.getMessage());
+        }
+
+        SessionRecorder recorder = session.getRecorder();
+        if (recorder != null) {
+            entries.put("console.log", String.join(System.lineSeparator(), recorder.getConsole()));
+            entries.put("network.json", new Json().toJson(recorder.getRequests()));
+        }
+        return entries;
+    }
+
+    public static String describeFailure(String test, Object[] parameters, long millis, Throwable failure) {
+        StringWriter text = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        writer.println(test);
+        writer.println("parameters: " + Arrays.toString(parameters));
+        writer.println("duration: " + millis + " ms");
+        if (failure != null) {
+            failure.printStackTrace(writer);
+        }
+        writer.flush();
+        return text.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package org.salesForceTesting.testUtils;
+
+/* What happened to one row run by the RowScheduler: the row, which worker ran it, how long it took
+ * and the failure (null when the row passed).
+ */
+public record RowOutcome<T>(String id, T row, String worker, long millis, Throwable failure) {
+
+    public boolean passed() {
+        return failure == null;
+    }
+
+    // TestNG shows the parameters in the report, the id is enough to find the row
+    @Override
+    public String toString() {
+        return id + " on " + worker + " (" + millis + " ms" + (passed() ? ")" : ", failed)");
+    }
+}
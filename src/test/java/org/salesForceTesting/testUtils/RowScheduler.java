@@ -0,0 +1,337 @@
+package org.salesForceTesting.testUtils;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.salesForceTesting.data.ShardPlanner;
+import org.salesForceTesting.driver.CommandTimings;
+import org.salesForceTesting.driver.DriverPool;
+import org.salesForceTesting.driver.PooledSession;
+import org.salesForceTesting.tests.BaseTestCore;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/* Runs data driven rows on K browser workers that take the next row as soon as they are free.
+ * With TestNG's parallel data provider the rows are handed to the threads up front, one slow row
+ * (a state dropdown timing out, a SUCCESS row waiting for the thank-you page) keeps its thread busy
+ * while the rows queued behind it wait and the other browsers sit idle.
+ * Here the rows go through one shared queue: whichever worker finishes first takes the next row,
+ * so a slow row only ever holds up itself.
+ *
+ * The rows are still read lazily: a feeder thread moves them from the data iterator into the queue,
+ * which holds at most two rows per worker.
+ * Every row leases a browser from the DriverPool (a warm one, reset between rows) and hands it back after,
+ * a failed row gets the same screenshot and failure bundle a failed TestNG test gets.
+ * start() returns the outcomes in the order the rows finish, the TestNG test reports each of them.
+ *
+ * With scheduler.threads=virtual there are no fixed workers: every row runs on its own virtual thread
+ * and a semaphore with one permit per browser (browser.max, default pool.size) decides how many run at once.
+ * A row spends nearly all its time waiting on chromedriver or a remote grid, on a virtual thread that wait
+ * doesn't hold a carrier thread, so one small JVM can drive dozens of sessions, the limit is the browsers
+ * the host can hold and not the size of a thread pool.
+ * Everything a row or the feeder blocks on (DriverPool, ScreenshotWriter, SessionRecorder, the queues and the outcome
+ * iterator here, the CSV and shard iterators, the local server) uses java.util.concurrent locks, not synchronized:
+ * on JDK 21 a virtual thread waiting inside or for a synchronized block stays pinned to its carrier.
+ * What is left: CommandTimingListener's synchronized map only holds its monitor for a lookup, and code outside
+ * this project (Selenium's HTTP client, TestNG) can still pin a carrier now and then.
+ */
+public class RowScheduler<T> {
+
+    // what a worker does with one row, the browser is already leased
+    @FunctionalInterface
+    public interface RowTask<T> {
+        void run(T row, PooledSession session) throws Exception;
+    }
+
+    private static final Object END_OF_ROWS = new Object();
+
+    private final int workers;
+    private final boolean virtualThreads;
+    private final Iterator<T> rows;
+    private final Function<T, String> idOf;
+    private final RowTask<T> task;
+
+    private final BlockingQueue<Object> queue;
+    private final BlockingQueue<RowOutcome<T>> finished = new LinkedBlockingQueue<>();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    // virtual thread mode only, one permit per browser
+    private final Semaphore browsers;
+
+    // statistics
+    private final AtomicLong completedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicInteger runningRows = new AtomicInteger();
+    private final AtomicInteger peakRunningRows = new AtomicInteger();
+    private volatile long startNanos;
+
+    public RowScheduler(int workers, Iterator<T> rows, Function<T, String> idOf, RowTask<T> task) {
+        this(workers, false, rows, idOf, task);
+    }
+
+    /* With virtualThreads the workers are the number of rows allowed to run at the same time,
+     * every row gets a virtual thread of its own.
+     */
+    public RowScheduler(int workers, boolean virtualThreads, Iterator<T> rows, Function<T, String> idOf, RowTask<T> task) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("the scheduler needs at least 1 worker but got " + workers);
+        }
+        this.workers = workers;
+        this.virtualThreads = virtualThreads;
+        this.rows = rows;
+        this.idOf = idOf;
+        this.task = task;
+        this.queue = new LinkedBlockingQueue<>(workers * 2);
+        this.browsers = virtualThreads ? new Semaphore(workers) : null;
+        if (virtualThreads && workers > DriverPool.getInstance().getMaxSize()) {
+            System.err.println("browser.max is " + workers + " but the pool only opens " + DriverPool.getInstance().getMaxSize()
+                    + " browsers, the extra rows will wait for a lease. Run with -Dpool.size=" + workers);
+        }
+    }
+
+    // a scheduler for the rows set up from the system properties
+    public static <T> RowScheduler<T> configured(Iterator<T> rows, Function<T, String> idOf, RowTask<T> task) {
+        return new RowScheduler<>(configuredWorkers(), usesVirtualThreads(), rows, idOf, task);
+    }
+
+    // scheduler.threads: platform (default) or virtual
+    public static boolean usesVirtualThreads() {
+        return "virtual".equalsIgnoreCase(System.getProperty("scheduler.threads", "platform"));
+    }
+
+    /* Platform threads: scheduler.workers, or one worker per browser the pool allows.
+     * Virtual threads: browser.max, or the pool size.
+     */
+    public static int configuredWorkers() {
+        int poolSize = DriverPool.getInstance().getMaxSize();
+        if (usesVirtualThreads()) {
+            return Integer.getInteger("browser.max", poolSize);
+        }
+        return Integer.getInteger("scheduler.workers", poolSize);
+    }
+
+    /* Starts the feeder and the workers, the iterator blocks until the next row is done
+     * and ends when every row has been run.
+     */
+    public Iterator<RowOutcome<T>> start() {
+        startNanos = System.nanoTime();
+        if (virtualThreads) {
+            // the dispatcher counts as the only worker, it finishes once the last row thread has
+            runningWorkers.set(1);
+            Thread.ofVirtual().name("row-feeder").start(this::feed);
+            Thread.ofVirtual().name("row-dispatcher").start(this::dispatch);
+            return new OutcomeIterator();
+        }
+        runningWorkers.set(workers);
+        Thread feeder = new Thread(this::feed, "row-feeder");
+        feeder.setDaemon(true);
+        feeder.start();
+        for (int i = 1; i <= workers; i++) {
+            Thread worker = new Thread(this::work, "row-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        return new OutcomeIterator();
+    }
+
+    private void feed() {
+        try {
+            while (rows.hasNext()) {
+                queue.put(rows.next());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Could not read the next row, the scheduler stops handing out rows: " + e.getMessage());
+        }
+        // one end marker per worker, each worker stops at the first one it takes
+        try {
+            for (int i = 0; i < (virtualThreads ? 1 : workers); i++) {
+                queue.put(END_OF_ROWS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void work() {
+        try {
+            while (true) {
+                Object next = queue.take();
+                if (next == END_OF_ROWS) {
+                    return;
+                }
+                finished.add(runRow((T) next));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            runningWorkers.decrementAndGet();
+        }
+    }
+
+    /* Virtual thread mode: takes the rows off the queue and starts a virtual thread for each one
+     * as soon as a browser permit is free. Closing the executor waits for the rows still running.
+     */
+    @SuppressWarnings("unchecked")
+    private void dispatch() {
+        try (ExecutorService rowThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("row-vthread-", 1).factory())) {
+            while (true) {
+                Object next = queue.take();
+                if (next == END_OF_ROWS) {
+                    break;
+                }
+                browsers.acquire();
+                T row = (T) next;
+                rowThreads.submit(() -> {
+                    try {
+                        finished.add(runRow(row));
+                    } finally {
+                        browsers.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            runningWorkers.decrementAndGet();
+        }
+    }
+
+    private RowOutcome<T> runRow(T row) {
+        String id = idOf.apply(row);
+        String worker = Thread.currentThread().getName();
+        long start = System.nanoTime();
+        peakRunningRows.accumulateAndGet(runningRows.incrementAndGet(), Math::max);
+        CommandTimings.startTest(id + " scheduled");
+        PooledSession session = null;
+        Throwable failure = null;
+        try {
+            session = DriverPool.getInstance().lease();
+            BaseTestCore.prepareSession(session);
+            task.run(row, session);
+        } catch (Throwable t) {
+            failure = t;
+            if (session != null) {
+                saveFailureArtifacts(id, row, session, t, (System.nanoTime() - start) / 1_000_000);
+            }
+        } finally {
+            // the same per test reset and report a TestNG test gets from BaseTestCore
+            if (session != null) {
+                BaseTestCore.reportSession(session, "scheduled[" + id + "]");
+            }
+            DriverPool.getInstance().release(session, failure != null);
+            CommandTimings.endTest();
+            runningRows.decrementAndGet();
+        }
+        long elapsed = System.nanoTime() - start;
+        busyNanos.addAndGet(elapsed);
+        completedRows.incrementAndGet();
+        if (failure != null) {
+            failedRows.incrementAndGet();
+        }
+        ShardPlanner.recordDuration(id, elapsed / 1_000_000);
+        return new RowOutcome<>(id, row, worker, elapsed / 1_000_000, failure);
+    }
+
+    // the browser is released right after the row, so the screenshot and bundle are taken here and not in the listener
+    private void saveFailureArtifacts(String id, T row, PooledSession session, Throwable failure, long millis) {
+        String name = "scheduled_" + id.replaceAll("[^A-Za-z0-9._-]", "-") + "_"
+                + new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").format(new Date());
+        try {
+            String screenshot = ((TakesScreenshot) session.getDriver()).getScreenshotAs(OutputType.BASE64);
+            ScreenshotWriter.getInstance().write(screenshot, name + ".png");
+        } catch (Exception e) {
+            System.err.println("Could not take a screenshot of the failed row " + id + ": " + e.getMessage());
+        }
+        String description = FailureBundle.describeFailure("scheduled row " + id, new Object[]{row}, millis, failure);
+        ScreenshotWriter.getInstance().writeBundle(FailureBundle.collect(description, session), name + ".zip");
+    }
+
+    // rows read from the data but not taken by a worker yet
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Object row : queue) {
+            if (row != END_OF_ROWS) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    // the most rows that were running at the same time
+    public int getPeakRunningRows() {
+        return peakRunningRows.get();
+    }
+
+    // share of the workers' time spent running rows, from 0 to 1
+    public double getUtilisation() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : Math.min(1.0, (double) busyNanos.get() / ((double) elapsed * workers));
+    }
+
+    public double getRowsPerMinute() {
+        double minutes = (System.nanoTime() - startNanos) / 60_000_000_000.0;
+        return minutes <= 0 ? 0 : completedRows.get() / minutes;
+    }
+
+    public String getStats() {
+        return String.format("Row scheduler: %d %s, %d rows done (%d failed), %d queued, %d running at most, %.0f%% utilisation, %.1f rows/min",
+                workers, virtualThreads ? "browser permits (virtual threads)" : "workers", completedRows.get(), failedRows.get(),
+                getQueueDepth(), peakRunningRows.get(), getUtilisation() * 100, getRowsPerMinute());
+    }
+
+    private class OutcomeIterator implements Iterator<RowOutcome<T>> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private RowOutcome<T> next;
+
+        @Override
+        public boolean hasNext() {
+            lock.lock();
+            try {
+                while (next == null) {
+                    next = finished.poll(200, TimeUnit.MILLISECONDS);
+                    if (next == null && runningWorkers.get() == 0 && finished.isEmpty()) {
+                        System.out.println(getStats());
+                        return false;
+                    }
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public RowOutcome<T> next() {
+            lock.lock();
+            try {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                RowOutcome<T> outcome = next;
+                next = null;
+                return outcome;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package org.salesForceTesting.testUtils;
 
-import org.apache.commons.io.FileUtils;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.salesForceTesting.driver.PooledSession;
 import org.salesForceTesting.tests.BaseTestCore;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
@@ -11,59 +12,69 @@ import org.testng.ITestResult;
 import org.testng.Reporter;
 
 import java.io.File;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 public class ScreenshotListener implements ITestListener {
 
+    private static final AtomicLong SCREENSHOT_SEQUENCE = new AtomicLong();
+
     @Override
     public void onTestFailure(ITestResult result) {
         Reporter.log("Test Failed: " + result.getName());
-        Object testInstance = result.getInstance();
-
-        // flag to check if the driver is null
-        WebDriver driver = null;
 
-        if (testInstance instanceof BaseTestCore) {
-            driver = ((BaseTestCore) testInstance).getDriver();
-        }
+        /* the listener is called on the thread that ran the test, so this is the driver of that row
+         * (the test instance is shared between the worker threads when running in parallel)
+         */
+        PooledSession session = BaseTestCore.getCurrentSession();
+        WebDriver driver = session == null ? null : session.getDriver();
 
         if (driver != null) {
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
             String testMethodName = result.getMethod().getMethodName();
-            String screenshotName = testMethodName + "_" + timestamp + ".png";
-            String screenshotDir = "test-output" + File.separator + "screenshots";
-            String screenshotPath = screenshotDir + File.separator + screenshotName;
+            String artifactName = artifactName(result);
+            String screenshotName = artifactName + ".png";
 
             try {
-
-                /*
-                 * Create the directory if it doesn't exist already
-                 * The screenshots will be saved to /test-output/screenshots 
+                /* only taking the screenshot happens on the test thread, the ScreenshotWriter decodes and
+                 * saves it to /test-output/screenshots in the background
                  */
-                File directory = new File(screenshotDir);
-                if (!directory.exists()) {
-                    directory.mkdirs();
-                }
-
-                // Try to take screenshot and save it to the screenshot directory
-                File screenshotFile = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
-                FileUtils.copyFile(screenshotFile, new File(screenshotPath));
+                String screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BASE64);
+                ScreenshotWriter.getInstance().write(screenshot, screenshotName);
                 String pathToScreenshot = "screenshots" + File.separator + screenshotName;
                 Reporter.log("Screenshot created: <a href='" + pathToScreenshot + "'> " + screenshotName + "</a><br>");
 
-            } catch (IOException e) {
+            } catch (WebDriverException e) {
                 Reporter.log("Failed to create a screenshot for " + testMethodName + ": " + e.getMessage());
                 e.printStackTrace();
             }
+
+            // the DOM, console, network log and field errors of the failed row, zipped in the background as well
+            String bundleName = artifactName + ".zip";
+            ScreenshotWriter.getInstance().writeBundle(FailureBundle.collect(result, session), bundleName);
+            Reporter.log("Failure bundle: <a href='failure-bundles" + File.separator + bundleName + "'> " + bundleName + "</a><br>");
         } else {
             Reporter.log("Could not capture a screenshot as the WebDriver instance is equal to null.");
         }
     }
 
 
+    /* method_testCaseId_timestamp_sequence (.png for the screenshot, .zip for the bundle), the testCaseId is
+     * the first data provider parameter. The timestamp has milliseconds and the sequence number makes the name
+     * unique even when two rows fail in the same millisecond
+     */
+    private String artifactName(ITestResult result) {
+        StringBuilder name = new StringBuilder(result.getMethod().getMethodName());
+        Object[] parameters = result.getParameters();
+        if (parameters.length > 0 && parameters[0] != null) {
+            name.append('_').append(parameters[0].toString().replaceAll("[^A-Za-z0-9._-]", "-"));
+        }
+        name.append('_').append(new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").format(new Date()));
+        name.append('_').append(SCREENSHOT_SEQUENCE.incrementAndGet());
+        return name.toString();
+    }
+
     // reports when test suite starts and finishes
     @Override
     public void onStart(ITestContext context) {
@@ -72,6 +83,9 @@ public class ScreenshotListener implements ITestListener {
 
     @Override
     public void onFinish(ITestContext context) {
+        // nothing is lost: wait for the queued screenshots before the reports are written
+        ScreenshotWriter.getInstance().flush();
+        System.out.println(ScreenshotWriter.getInstance().getStats());
         Reporter.log("Test Suite Finished: " + context.getName() + "<br>");
     }
 
@@ -0,0 +1,180 @@
+package org.salesForceTesting.testUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/* Writes the failure screenshots in the background so the test thread only pays for taking the screenshot.
+ * The screenshot comes in as the BASE64 string the browser sends, decoding and writing is done on one
+ * writer thread. When the queue (screenshot.queue.size, default 32) is full the test thread writes the
+ * screenshot itself, so a wave of failures slows down instead of losing screenshots.
+ *
+ * Identical frames (same SHA-256) are written once, the other names become hard links to the first file
+ * (or copies when the file system can't link).
+ * flush() waits for everything that was handed in so far, the listener calls it when the suite finishes.
+ *
+ * The failure bundles (text files zipped together) go through the same queue into test-output/failure-bundles.
+ */
+public class ScreenshotWriter {
+
+    private static final ScreenshotWriter INSTANCE = new ScreenshotWriter(
+            Paths.get("test-output", "screenshots"), Paths.get("test-output", "failure-bundles"),
+            Integer.getInteger("screenshot.queue.size", 32));
+
+    private final Path directory;
+    private final Path bundleDirectory;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Path> writtenFrames = new ConcurrentHashMap<>();
+
+    // screenshots handed in but not on disk yet, flush() waits for this to get back to 0
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    private int pending;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong bundles = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong writeMillis = new AtomicLong();
+
+    ScreenshotWriter(Path directory, Path bundleDirectory, int queueSize) {
+        this.directory = directory;
+        this.bundleDirectory = bundleDirectory;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "screenshot-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public static ScreenshotWriter getInstance() {
+        return INSTANCE;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Path getBundleDirectory() {
+        return bundleDirectory;
+    }
+
+    // queues the screenshot, fileName is relative to the screenshot directory
+    public void write(String base64Png, String fileName) {
+        enqueue(() -> save(base64Png, directory.resolve(fileName)));
+    }
+
+    // queues a zip with one entry per map key, fileName is relative to the failure bundle directory
+    public void writeBundle(Map<String, String> entries, String fileName) {
+        enqueue(() -> saveBundle(entries, bundleDirectory.resolve(fileName)));
+    }
+
+    private void enqueue(Runnable task) {
+        changePending(1);
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                changePending(-1);
+            }
+        });
+    }
+
+    private void save(String base64Png, Path target) {
+        long start = System.nanoTime();
+        try {
+            byte[] png = Base64.getMimeDecoder().decode(base64Png);
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(png));
+            Files.createDirectories(directory);
+
+            Path existing = writtenFrames.putIfAbsent(hash, target);
+            if (existing == null) {
+                Files.write(target, png);
+                written.incrementAndGet();
+            } else {
+                duplicates.incrementAndGet();
+                try {
+                    Files.createLink(target, existing);
+                } catch (IOException | UnsupportedOperationException e) {
+                    Files.write(target, png);
+                }
+            }
+        } catch (IOException | NoSuchAlgorithmException | IllegalArgumentException e) {
+            failed.incrementAndGet();
+            System.err.println("Could not write the screenshot " + target + ": " + e.getMessage());
+        } finally {
+            writeMillis.addAndGet((System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void saveBundle(Map<String, String> entries, Path target) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(bundleDirectory);
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(target))) {
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    zip.putNextEntry(new ZipEntry(entry.getKey()));
+                    zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                    zip.closeEntry();
+                }
+            }
+            bundles.incrementAndGet();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            System.err.println("Could not write the failure bundle " + target + ": " + e.getMessage());
+        } finally {
+            writeMillis.addAndGet((System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // blocks until every screenshot and bundle handed in so far is on disk
+    public void flush() {
+        lock.lock();
+        try {
+            while (pending > 0) {
+                drained.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void changePending(int delta) {
+        lock.lock();
+        try {
+            pending += delta;
+            if (pending == 0) {
+                drained.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getStats() {
+        long files = written.get() + duplicates.get();
+        return String.format("Screenshots: %d saved (%d unique frames, %d duplicates linked), %d failure bundles, %d failed, %d ms spent decoding and writing",
+                files, written.get(), duplicates.get(), bundles.get(), failed.get(), writeMillis.get());
+    }
+}
@@ -0,0 +1,34 @@
+package org.salesForceTesting.testUtils;
+
+import org.salesForceTesting.data.ShardPlanner;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* The ShardPlanner splits the data provider rows, the tests without a data provider (testValidFormSubmission,
+ * the email and phone loops) don't have rows to split and would run again in every shard.
+ * They only run in shard 0, the planner adds their recorded duration to shard 0 before it packs the rows.
+ */
+public class ShardMethodInterceptor implements IMethodInterceptor {
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (ShardPlanner.runsUnshardedTests()) {
+            return methods;
+        }
+        List<IMethodInstance> kept = new ArrayList<>();
+        for (IMethodInstance method : methods) {
+            if (method.getMethod().isDataDriven()) {
+                kept.add(method);
+            }
+        }
+        if (kept.size() < methods.size()) {
+            System.out.println("Shard " + ShardPlanner.getShardIndex() + ": " + (methods.size() - kept.size())
+                    + " tests without a data provider are left to shard 0");
+        }
+        return kept;
+    }
+}
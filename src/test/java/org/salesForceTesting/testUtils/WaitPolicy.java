@@ -0,0 +1,183 @@
+package org.salesForceTesting.testUtils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.salesForceTesting.driver.CommandTimings;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/* All the waiting in the tests goes through here, the browsers run without an implicit wait.
+ * Mixing implicit and explicit waits makes the timing unpredictable, and with an implicit wait every
+ * "is the error there?" check burned the whole timeout when the error wasn't there.
+ *
+ * There are two default timeouts:
+ *  presence - how long to wait for something we expect to show up (wait.presence.ms, default 15000)
+ *  absence  - how long to wait for something to go away, or to give something that's
+ *             probably not coming a chance to show up (wait.absence.ms, default 2000)
+ * A locator can have its own timeout with override(locator, timeout).
+ *
+ * Polling starts fast and backs off: wait.poll.initial.ms (default 50) growing by wait.poll.backoff
+ * (default 1.5) up to wait.poll.max.ms (default 500).
+ * -Dwait.log=true logs how long every wait actually took (off by default, it is a line per wait).
+ * The waits also go into the command timing report as "wait" with the description as the locator.
+ */
+public class WaitPolicy {
+
+    private static final WaitPolicy DEFAULTS = new WaitPolicy(
+            Duration.ofMillis(Long.getLong("wait.presence.ms", 15000)),
+            Duration.ofMillis(Long.getLong("wait.absence.ms", 2000)),
+            Duration.ofMillis(Long.getLong("wait.poll.initial.ms", 50)),
+            Duration.ofMillis(Long.getLong("wait.poll.max.ms", 500)),
+            Double.parseDouble(System.getProperty("wait.poll.backoff", "1.5")));
+
+    private static final boolean LOG_WAITS = Boolean.parseBoolean(System.getProperty("wait.log", "false"));
+
+    private final Duration presenceTimeout;
+    private final Duration absenceTimeout;
+    private final Duration initialPoll;
+    private final Duration maxPoll;
+    private final double backoff;
+    private final Map<By, Duration> overrides = new ConcurrentHashMap<>();
+
+    // statistics over every wait in the run
+    private static final AtomicLong WAITS = new AtomicLong();
+    private static final AtomicLong TIMEOUTS = new AtomicLong();
+    private static final AtomicLong WAITED_MILLIS = new AtomicLong();
+
+    public WaitPolicy(Duration presenceTimeout, Duration absenceTimeout, Duration initialPoll, Duration maxPoll, double backoff) {
+        this.presenceTimeout = presenceTimeout;
+        this.absenceTimeout = absenceTimeout;
+        this.initialPoll = initialPoll;
+        this.maxPoll = maxPoll;
+        this.backoff = Math.max(1.0, backoff);
+    }
+
+    public static WaitPolicy defaults() {
+        return DEFAULTS;
+    }
+
+    // gives one locator its own timeout for both presence and absence waits
+    public WaitPolicy override(By locator, Duration timeout) {
+        overrides.put(locator, timeout);
+        return this;
+    }
+
+    // a copy of this policy with one more override, the policy it was made from doesn't change
+    public WaitPolicy withOverride(By locator, Duration timeout) {
+        WaitPolicy copy = new WaitPolicy(presenceTimeout, absenceTimeout, initialPoll, maxPoll, backoff);
+        copy.overrides.putAll(overrides);
+        return copy.override(locator, timeout);
+    }
+
+    public Duration presenceTimeout(By locator) {
+        return overrides.getOrDefault(locator, presenceTimeout);
+    }
+
+    public Duration absenceTimeout(By locator) {
+        return overrides.getOrDefault(locator, absenceTimeout);
+    }
+
+    public WebElement present(WebDriver driver, By locator) {
+        return until(driver, "presence of " + locator, presenceTimeout(locator),
+                ExpectedConditions.presenceOfElementLocated(locator));
+    }
+
+    public WebElement visible(WebDriver driver, By locator) {
+        return until(driver, "visibility of " + locator, presenceTimeout(locator),
+                ExpectedConditions.visibilityOfElementLocated(locator));
+    }
+
+    public WebElement clickable(WebDriver driver, By locator) {
+        return until(driver, "clickable " + locator, presenceTimeout(locator),
+                ExpectedConditions.elementToBeClickable(locator));
+    }
+
+    // true once the element is gone or hidden, false if it is still there after the absence timeout
+    public boolean absent(WebDriver driver, By locator) {
+        try {
+            until(driver, "absence of " + locator, absenceTimeout(locator),
+                    ExpectedConditions.invisibilityOfElementLocated(locator));
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    // for things that may or may not show up, only waits the (short) absence timeout before saying no
+    public boolean appears(WebDriver driver, By locator) {
+        try {
+            until(driver, "appearance of " + locator, absenceTimeout(locator),
+                    ExpectedConditions.visibilityOfElementLocated(locator));
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /* Polls the condition until it returns something that isn't null or false.
+     * NoSuchElement and StaleElement exceptions count as "not yet".
+     * Throws Selenium's TimeoutException, the same as WebDriverWait, so existing catch blocks keep working.
+     */
+    public <T> T until(WebDriver driver, String description, Duration timeout, Function<? super WebDriver, T> condition) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long poll = initialPoll.toNanos();
+        RuntimeException lastError = null;
+
+        while (true) {
+            try {
+                T value = condition.apply(driver);
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    record(description, start, timeout, true);
+                    return value;
+                }
+            } catch (NoSuchElementException | StaleElementReferenceException e) {
+                lastError = e;
+            }
+
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                long waited = record(description, start, timeout, false);
+                throw new TimeoutException("Timed out after " + waited + " ms waiting for " + description, lastError);
+            }
+
+            try {
+                Thread.sleep(Duration.ofNanos(Math.min(poll, deadline - now)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimeoutException("Interrupted while waiting for " + description, e);
+            }
+            poll = Math.min((long) (poll * backoff), maxPoll.toNanos());
+        }
+    }
+
+    private long record(String description, long start, Duration timeout, boolean satisfied) {
+        long elapsed = System.nanoTime() - start;
+        long waited = elapsed / 1_000_000;
+        CommandTimings.record(satisfied ? "wait" : "wait (timed out)", description, elapsed);
+        WAITS.incrementAndGet();
+        WAITED_MILLIS.addAndGet(waited);
+        if (!satisfied) {
+            TIMEOUTS.incrementAndGet();
+        }
+        if (LOG_WAITS) {
+            System.out.println("Wait for " + description + (satisfied ? " took " : " timed out after ")
+                    + waited + " ms (timeout " + timeout.toMillis() + " ms)");
+        }
+        return waited;
+    }
+
+    public static String getStats() {
+        return String.format("Waits: %d waits, %d timed out, %d ms spent waiting in total",
+                WAITS.get(), TIMEOUTS.get(), WAITED_MILLIS.get());
+    }
+}
@@ -1,36 +1,72 @@
 package org.salesForceTesting.tests;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import org.salesForceTesting.data.ShardPlanner;
+import org.salesForceTesting.driver.CommandTimings;
+import org.salesForceTesting.driver.DriverPool;
+import org.salesForceTesting.driver.LaunchProfile;
+import org.salesForceTesting.driver.NetworkFilter;
+import org.salesForceTesting.driver.NetworkFilterGuard;
+import org.salesForceTesting.driver.PooledSession;
+import org.salesForceTesting.driver.ReplayCache;
+import org.salesForceTesting.pages.CookieConsentManager;
+import org.salesForceTesting.pages.ElementCache;
+import org.salesForceTesting.pages.FormReadinessProbe;
+import org.salesForceTesting.pages.StateFieldWatcher;
+import org.salesForceTesting.pages.ValidationSnapshot;
+import org.salesForceTesting.server.LocalContactServer;
+import org.salesForceTesting.testUtils.WaitPolicy;
+import org.testng.ITestResult;
+import org.testng.Reporter;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
 
+import java.lang.reflect.Method;
 import java.time.Duration;
 
 
 /* this is the base class for all tests, it contains the setup and teardown methods
-   and the WebDriver instance. It is used to initialize the web driver before each test and quit it after each test.
+   and the WebDriver instance. It leases a warm browser from the DriverPool before each test and hands it back after each test.
    It also contains a method to get the WebDriver instance for use in the tests.
+   The session is kept per thread, so data provider rows can run in parallel with each worker thread owning its own browser.
   * other tests will extend this class
   * it also contains a method to handle the accept all cookies button
  */
 public class BaseTestCore {
 
-        protected WebDriver driver;
+        // one session per worker thread, the test instance is shared between the threads
+        private static final ThreadLocal<PooledSession> SESSION = new ThreadLocal<>();
         private static final Duration COOKIE_WAIT_TIMEOUT = Duration.ofSeconds(5);
 
+        // the commands of the test are attributed to its testCaseId, the first data provider parameter
         @BeforeMethod
-        public void setUp() {
-            WebDriverManager.chromedriver().setup();
-            System.setProperty("webdriver.chrome.driver", "/usr/bin/chromedriver");
-            driver = new ChromeDriver();
-            driver.manage().window().maximize();
-            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(20));
+        public void setUp(Method method, Object[] parameters) {
+            String testCaseId = parameters.length > 0 ? String.valueOf(parameters[0]) : method.getName();
+            CommandTimings.startTest(testCaseId + " " + method.getName());
+            PooledSession session = DriverPool.getInstance().lease();
+            prepareSession(session);
+            SESSION.set(session);
+        }
+
+        // the per test counters and recordings of a leased session start empty, the RowScheduler calls this for every row too
+        public static void prepareSession(PooledSession session) {
+            if (session.getNetworkFilter() != null) {
+                session.getNetworkFilter().resetCounters();
+            }
+            if (session.getRecorder() != null) {
+                session.getRecorder().reset();
+            }
+        }
+
+        // what the session saw during the test, logged before it goes back to the pool (also for every scheduled row)
+        public static void reportSession(PooledSession session, String test) {
+            reportNetworkFilter(session, test);
+            FormReadinessProbe.getInstance().reportTest(session.getDriver());
         }
 
         /*  Use firefox driver instead of chrome driver
@@ -44,16 +80,90 @@ public class BaseTestCore {
     }
      */
 
-        @AfterMethod
-        public void tearDown() {
-            if (driver != null) {
-                driver.quit();
+        // the browser goes back to the pool, a failed test gets its browser recycled instead of reused
+        @AfterMethod(alwaysRun = true)
+        public void tearDown(ITestResult result) {
+            // the row durations are what the shard planner balances the next sharded run with,
+            // a test that was skipped (or whose setup failed) didn't run and has no duration
+            boolean ran = result.getStatus() == ITestResult.SUCCESS || result.getStatus() == ITestResult.FAILURE;
+            if (ran && result.getParameters().length > 0) {
+                ShardPlanner.recordDuration(String.valueOf(result.getParameters()[0]), result.getEndMillis() - result.getStartMillis());
+            } else if (ran) {
+                ShardPlanner.recordMethodDuration(result.getMethod().getMethodName(), result.getEndMillis() - result.getStartMillis());
+            }
+            PooledSession session = SESSION.get();
+            if (session != null) {
+                String test = result.getMethod().getMethodName();
+                if (result.getParameters().length > 0) {
+                    test += "[" + result.getParameters()[0] + "]";
+                }
+                reportSession(session, test);
+                DriverPool.getInstance().release(session, !result.isSuccess());
+                SESSION.remove();
+            }
+            CommandTimings.endTest();
+        }
+
+        @AfterSuite(alwaysRun = true)
+        public void closeDriverPool() {
+            finishRun();
+        }
+
+        // the end of run reports and clean up, also called by suites whose classes don't extend this one
+        public static void finishRun() {
+            System.out.println(DriverPool.getInstance().getStats());
+            System.out.println(LaunchProfile.getStats());
+            System.out.println(WaitPolicy.getStats());
+            System.out.println(CookieConsentManager.getInstance().getStats());
+            System.out.println(FormReadinessProbe.getInstance().getStats());
+            System.out.println(ElementCache.getStats());
+            System.out.println(StateFieldWatcher.getStats());
+            System.out.println(CommandTimings.getStats());
+            if (ReplayCache.isEnabled()) {
+                System.out.println(ReplayCache.getInstance().getStats());
+                ReplayCache.getInstance().finish();
+            }
+            CommandTimings.writeReport();
+            DriverPool.getInstance().shutdown();
+            LocalContactServer.stopShared();
+            NetworkFilterGuard.finish();
+            ShardPlanner.finish();
+        }
+
+        // logs what the network filter blocked for the test and, in guard mode, remembers the validation outcome
+        private static void reportNetworkFilter(PooledSession session, String test) {
+            NetworkFilter filter = session.getNetworkFilter();
+            if (filter != null) {
+                Reporter.log(filter.getStats() + "<br>");
+                System.out.println(test + ": " + filter.getStats());
+            }
+            if (NetworkFilterGuard.isEnabled()) {
+                try {
+                    WebDriver driver = session.getDriver();
+                    String outcome = ValidationSnapshot.capture(driver).describeErrors();
+                    if (!driver.findElements(By.id("thank-you-well-be-in-touch-soon")).isEmpty()) {
+                        outcome += ", thank-you shown";
+                    }
+                    NetworkFilterGuard.record(test, outcome);
+                } catch (Exception e) {
+                    NetworkFilterGuard.record(test, "could not read the page: " + e.getClass().getSimpleName());
+                }
             }
         }
 
-        // this method is for the TESTNG listener to get the driver instance
         public WebDriver getDriver() {
-            return driver;
+            return getCurrentDriver();
+        }
+
+        // this method is for the TESTNG listener to get the driver of the thread the test ran on
+        public static WebDriver getCurrentDriver() {
+            PooledSession session = SESSION.get();
+            return session == null ? null : session.getDriver();
+        }
+
+        // the whole session of the thread the test ran on, the listener reads the recorder from it
+        public static PooledSession getCurrentSession() {
+            return SESSION.get();
         }
         
     }
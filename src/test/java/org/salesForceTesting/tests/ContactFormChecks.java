@@ -0,0 +1,93 @@
+package org.salesForceTesting.tests;
+
+import org.salesForceTesting.data.ContactFormRow;
+import org.salesForceTesting.pages.ContactFormPage;
+import org.salesForceTesting.pages.FormField;
+import org.salesForceTesting.pages.SubmissionOutcome;
+import org.testng.Assert;
+
+/* The check behind testContactFormValidation: fill the form with one CSV row, submit it
+ * and assert the outcome the row expects.
+ * It only needs a page that is already on the contact form, so the TestNG data provider test and
+ * the RowScheduler workers run exactly the same check.
+ */
+public final class ContactFormChecks {
+
+    private ContactFormChecks() {
+    }
+
+    public static void verifyRow(ContactFormPage page, ContactFormRow row) {
+        String testCaseId = row.testCaseId();
+        String expectedResult = row.expectedResult();
+
+        // Log the test case being executed
+        System.out.println("Executing test case: " + testCaseId);
+
+        // Fill the form with the provided data from the CSV
+        page.fillOutForm(row.firstName(), row.lastName(), row.email(), row.company(), row.phone(), row.jobTitle(),
+                row.employeesNumber(), row.productInterest(), row.country(), row.state());
+
+        // Submit the form and wait for the first thing the page shows, success or errors
+        page.submitForm();
+        SubmissionOutcome outcome = page.awaitSubmissionOutcome();
+        System.out.println(testCaseId + " submitted: " + outcome);
+        String got = ", got " + outcome;
+
+        // This will go through the expected results and check if the form is displayed correctly
+        switch (expectedResult) {
+            case "SUCCESS":
+                Assert.assertTrue(outcome.isSuccess(), "Success message should be displayed: " + testCaseId + got);
+                String successText = outcome.getSuccessText();
+                Assert.assertNotNull(successText, "Success message text should not be null: " + testCaseId);
+                Assert.assertEquals(successText, "Thank you. We'll be in touch soon.", "message of success is wrong: " + testCaseId);
+                break;
+
+            case "FIRST_NAME_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.FIRST_NAME), "First name error should be displayed: " + testCaseId + got);
+                String firstNameError = outcome.getErrorMessage(FormField.FIRST_NAME);
+                Assert.assertEquals(firstNameError, "Enter your first name","First name error message is not right: " + testCaseId);
+                break;
+
+            case "LAST_NAME_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.LAST_NAME), "Last name error should be displayed: " + testCaseId + got);
+                String lastNameError = outcome.getErrorMessage(FormField.LAST_NAME);
+                Assert.assertEquals(lastNameError, "Enter your last name","Last name error message is not right: " + testCaseId);
+                break;
+
+            case "JOB_TITLE_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.JOB_TITLE), "Job title error should be displayed: " + testCaseId + got);
+                break;
+
+            case "EMAIL_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.EMAIL), "Email error should be displayed: " + testCaseId + got);
+                String emailError = outcome.getErrorMessage(FormField.EMAIL);
+                Assert.assertTrue(emailError.contains("valid") || emailError.contains("email"),"Email error should mention valid email format: " + testCaseId);
+                break;
+
+            case "COMPANY_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.COMPANY), "Company error should be displayed: " + testCaseId + got);
+                break;
+
+            case "EMPLOYEES_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.EMPLOYEES), "Employees number error should be displayed: " + testCaseId + got);
+                break;
+
+            case "PHONE_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.PHONE), "Phone error should be displayed: " + testCaseId + got);
+                break;
+
+            case "PRODUCT_INTEREST_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.PRODUCT_INTEREST), "Product interest error should be displayed: " + testCaseId + got); 
+                break;
+
+            case "COUNTRY_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.COUNTRY), "Country error should be displayed: " + testCaseId + got);
+                break;
+            case "STATE_ERROR":
+                Assert.assertTrue(outcome.isErrorDisplayed(FormField.STATE), "State error should be displayed: " + testCaseId + got);
+                break;
+            default:
+                Assert.fail(expectedResult + " is unknown, expected result for:" + testCaseId);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.salesForceTesting.tests;
+
+import org.salesForceTesting.data.ContactFormDataProvider;
+import org.salesForceTesting.data.ContactFormRow;
+import org.salesForceTesting.data.ShardPlanner;
+import org.salesForceTesting.pages.ContactFormPage;
+import org.salesForceTesting.testUtils.RowOutcome;
+import org.salesForceTesting.testUtils.RowScheduler;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+
+/* testContactFormValidation run through the RowScheduler instead of TestNG's parallel data provider.
+ * The scheduler's workers run the rows on their own browsers, the data provider hands every finished row
+ * to the test method, which reports it: a failed row rethrows its failure so it fails in the TestNG report as well.
+ *
+ * The class name doesn't end in Test so a plain mvn test doesn't run the rows twice, it has its own suite:
+ *   mvn test -Dsurefire.suiteXmlFiles=src/test/resources/scheduled.xml -Dpool.size=4
+ * The number of workers is -Dscheduler.workers (default pool.size).
+ * To run every row on a virtual thread, with browser.max browsers at the same time:
+ *   mvn test -Dsurefire.suiteXmlFiles=src/test/resources/scheduled.xml -Dscheduler.threads=virtual -Dbrowser.max=24 -Dpool.size=24
+ */
+public class ScheduledContactFormRows {
+
+    private RowScheduler<ContactFormRow> scheduler;
+
+    @DataProvider(name = "ScheduledRows")
+    public Iterator<Object[]> scheduledRows() {
+        scheduler = RowScheduler.configured(ShardPlanner.filter(ContactFormDataProvider.readRows()),
+                ContactFormRow::testCaseId, (row, session) -> {
+                    ContactFormPage page = new ContactFormPage(session.getDriver());
+                    page.navigateToContactPage();
+                    ContactFormChecks.verifyRow(page, row);
+                });
+        Iterator<RowOutcome<ContactFormRow>> outcomes = scheduler.start();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return outcomes.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                RowOutcome<ContactFormRow> outcome = outcomes.next();
+                return new Object[]{outcome.id(), outcome};
+            }
+        };
+    }
+
+    @Test(dataProvider = "ScheduledRows")
+    public void testContactFormValidation(String testCaseId, RowOutcome<ContactFormRow> outcome) throws Throwable {
+        Reporter.log("Row " + outcome + "<br>");
+        Reporter.log(scheduler.getStats() + "<br>");
+        if (!outcome.passed()) {
+            throw outcome.failure();
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void printSchedulerStats() {
+        if (scheduler != null) {
+            System.out.println(scheduler.getStats());
+        }
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void closeDriverPool() {
+        BaseTestCore.finishRun();
+    }
+}